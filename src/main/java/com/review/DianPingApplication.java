@@ -5,13 +5,19 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.EnableAspectJAutoProxy;
 
+import java.util.Collections;
+
 @EnableAspectJAutoProxy(exposeProxy = true) // 暴露代理对象
 @MapperScan("com.review.mapper")
 @SpringBootApplication
 public class DianPingApplication {
 
     public static void main(String[] args) {
-        SpringApplication.run(DianPingApplication.class, args);
+        SpringApplication application = new SpringApplication(DianPingApplication.class);
+        // 默认通过 HTTP 暴露的 Actuator 端点，可在配置文件中覆盖
+        application.setDefaultProperties(Collections.singletonMap(
+                "management.endpoints.web.exposure.include", "health,metrics,cache"));
+        application.run(args);
     }
 
 }
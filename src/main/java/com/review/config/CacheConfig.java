@@ -0,0 +1,90 @@
+package com.review.config;
+
+import com.review.utils.BloomFilterGuard;
+import com.review.utils.CacheClient;
+import com.review.utils.CacheRegion;
+import com.review.utils.CacheRegionRegistry;
+import com.review.utils.RebuildLimiter;
+import com.review.utils.ShopGeoIndex;
+import com.review.utils.ShopNameIndex;
+import com.review.utils.SoldOutRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static com.review.utils.RedisConstants.*;
+
+/**
+ * 缓存相关配置
+ */
+@Configuration
+public class CacheConfig {
+
+    /**
+     * 订阅缓存变更消息，收到后清除本节点的一级缓存并唤醒等待重建的线程
+     */
+    @Bean
+    public RedisMessageListenerContainer cacheMessageListenerContainer(
+            RedisConnectionFactory connectionFactory, CacheClient cacheClient, BloomFilterGuard bloomFilterGuard,
+            ShopNameIndex shopNameIndex, ShopGeoIndex shopGeoIndex, SoldOutRegistry soldOutRegistry) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(
+                (message, pattern) -> cacheClient.onInvalidationMessage(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(CACHE_INVALIDATE_CHANNEL)
+        );
+        // 布隆过滤器本地副本同步
+        container.addMessageListener(
+                (message, pattern) -> bloomFilterGuard.onRemoteAdd(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(BLOOM_ADD_CHANNEL)
+        );
+        container.addMessageListener(
+                (message, pattern) -> bloomFilterGuard.onRemoteReload(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(BLOOM_RELOAD_CHANNEL)
+        );
+        // 店铺名称索引同步
+        container.addMessageListener(
+                (message, pattern) -> shopNameIndex.onRemoteChange(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(SHOP_NAME_CHANGED_CHANNEL)
+        );
+        // 店铺空间索引同步
+        container.addMessageListener(
+                (message, pattern) -> shopGeoIndex.onRemoteChange(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(SHOP_GEO_CHANGED_CHANNEL)
+        );
+        // 秒杀券售罄标记同步
+        container.addMessageListener(
+                (message, pattern) -> soldOutRegistry.onRemoteSoldOut(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(SECKILL_SOLD_OUT_CHANNEL)
+        );
+        container.addMessageListener(
+                (message, pattern) -> soldOutRegistry.onRemoteRestock(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(SECKILL_RESTOCK_CHANNEL)
+        );
+        return container;
+    }
+
+    /**
+     * 缓存区域，@Cached 按名称引用
+     */
+    @Bean
+    public CacheRegionRegistry cacheRegionRegistry(CacheClient cacheClient, RebuildLimiter rebuildLimiter) {
+        return new CacheRegionRegistry(cacheClient, rebuildLimiter)
+                // 店铺缓存会被批量预热，加大 TTL 抖动，并限制集群内同时查库重建的数量
+                .register(new CacheRegion().setName("shop").setKeyPrefix(CACHE_SHOP_KEY).setLockPrefix(LOCK_SHOP_KEY)
+                        .setTtl(CACHE_SHOP_TTL).setUnit(TimeUnit.MINUTES)
+                        .setJitterRatio(CACHE_SHOP_TTL_JITTER_RATIO).setMaxRebuilds(CACHE_SHOP_REBUILD_PERMITS))
+                .register(new CacheRegion().setName("user").setKeyPrefix(CACHE_USER_KEY)
+                        .setTtl(CACHE_USER_TTL).setUnit(TimeUnit.MINUTES))
+                .register(new CacheRegion().setName("blog").setKeyPrefix(CACHE_BLOG_KEY)
+                        .setTtl(CACHE_BLOG_TTL).setUnit(TimeUnit.MINUTES))
+                // 券列表含秒杀库存，TTL 较短
+                .register(new CacheRegion().setName("voucher").setKeyPrefix(CACHE_VOUCHER_KEY)
+                        .setTtl(CACHE_VOUCHER_TTL).setUnit(TimeUnit.MINUTES));
+    }
+}
@@ -1,7 +1,9 @@
 package com.review.config;
 
+import com.review.utils.CacheWarmUpRunner;
 import com.review.utils.LoginInterceptor;
 import com.review.utils.RefreshTokenInterceptor;
+import com.review.utils.WarmUpInterceptor;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
@@ -17,9 +19,14 @@ public class MvcConfig implements WebMvcConfigurer {
 
     @Resource
     private StringRedisTemplate stringRedisTemplate;
+    @Resource
+    private CacheWarmUpRunner cacheWarmUpRunner;
 
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
+        // 预热就绪门
+        registry.addInterceptor(new WarmUpInterceptor(cacheWarmUpRunner))
+                .excludePathPatterns("/cache/warm-up").order(-1);
         // 登录拦截器
         registry.addInterceptor(new LoginInterceptor())
                 .excludePathPatterns(
@@ -29,7 +36,8 @@ public class MvcConfig implements WebMvcConfigurer {
                         "/upload/**",
                         "/blog/hot",
                         "/user/login",
-                        "/user/code"
+                        "/user/code",
+                        "/cache/warm-up"
                 ).order(1);
         // token 刷新拦截器
         registry.addInterceptor(new RefreshTokenInterceptor(stringRedisTemplate))
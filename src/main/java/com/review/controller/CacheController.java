@@ -0,0 +1,62 @@
+package com.review.controller;
+
+import com.review.dto.Result;
+import com.review.service.IShopService;
+import com.review.service.IShopTypeService;
+import com.review.utils.CacheClient;
+import com.review.utils.CacheWarmUpRunner;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.annotation.Resource;
+
+@RestController
+@RequestMapping("/cache")
+public class CacheController {
+
+    @Resource
+    private CacheClient cacheClient;
+    @Resource
+    private CacheWarmUpRunner cacheWarmUpRunner;
+    @Resource
+    private IShopService shopService;
+    @Resource
+    private IShopTypeService shopTypeService;
+
+    /**
+     * 查询本节点当前的热点 key
+     * @return 热点 key -> 窗口内估计的访问次数，按访问次数降序
+     */
+    @GetMapping("/hot-keys")
+    public Result queryHotKeys() {
+        return Result.ok(cacheClient.getHotKeys());
+    }
+
+    /**
+     * 查询启动预热进度
+     * @return 任务名 -> 已完成数量/总数
+     */
+    @GetMapping("/warm-up")
+    public Result queryWarmUpProgress() {
+        return Result.ok(cacheWarmUpRunner.getProgress());
+    }
+
+    /**
+     * 全量重建店铺 GEO 索引，后台执行，立即返回
+     */
+    @PostMapping("/shop-geo/reload")
+    public Result reloadShopGeo() {
+        return shopService.reloadShopGeo() ? Result.ok() : Result.fail("GEO 索引正在重建中");
+    }
+
+    /**
+     * 直接修改数据库中的店铺类型后调用，递增版本号，各节点重新加载快照（ETag 随之变化）
+     */
+    @PostMapping("/shop-type/refresh")
+    public Result refreshShopTypes() {
+        shopTypeService.onTypesChanged();
+        return Result.ok();
+    }
+}
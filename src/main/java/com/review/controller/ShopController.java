@@ -1,15 +1,13 @@
 package com.review.controller;
 
 
-import cn.hutool.core.util.StrUtil;
-import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.review.dto.Result;
 import com.review.entity.Shop;
 import com.review.service.IShopService;
-import com.review.utils.SystemConstants;
 import org.springframework.web.bind.annotation.*;
 
 import javax.annotation.Resource;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/shop")
@@ -24,8 +22,9 @@ public class ShopController {
      * @return 商铺详情数据
      */
     @GetMapping("/{id}")
-    public Result queryShopById(@PathVariable("id") Long id) {
-        return shopService.queryById(id);
+    public CompletableFuture<Result> queryShopById(@PathVariable("id") Long id) {
+        // 异步查询，等待 Redis / MySQL 期间释放请求线程
+        return shopService.queryByIdAsync(id);
     }
 
     /**
@@ -35,10 +34,8 @@ public class ShopController {
      */
     @PostMapping
     public Result saveShop(@RequestBody Shop shop) {
-        // 写入数据库
-        shopService.save(shop);
-        // 返回店铺id
-        return Result.ok(shop.getId());
+        // 写入数据库，并加入布隆过滤器
+        return shopService.saveShop(shop);
     }
 
     /**
@@ -68,6 +65,44 @@ public class ShopController {
         return shopService.queryShopByType(typeId, current, x, y);
     }
 
+    /**
+     * 根据商铺类型按字段排序分页查询商铺信息
+     * @param typeId 商铺类型
+     * @param sortBy 排序字段：score、sold、comments、avgPrice
+     * @param area 商圈，不传表示不限
+     * @param desc 是否降序，不传时评分、销量、评论数降序，人均价格升序
+     * @param current 页码
+     * @return 商铺列表
+     */
+    @GetMapping("/of/type/sorted")
+    public Result queryShopBySort(
+            @RequestParam("typeId") Integer typeId,
+            @RequestParam("sortBy") String sortBy,
+            @RequestParam(value = "area", required = false) String area,
+            @RequestParam(value = "desc", required = false) Boolean desc,
+            @RequestParam(value = "current", defaultValue = "1") Integer current
+            ) {
+        return shopService.queryShopBySort(typeId, area, sortBy, desc, current);
+    }
+
+    /**
+     * 根据商铺类型按距离滚动查询商铺信息
+     * @param typeId 商铺类型
+     * @param x 经度
+     * @param y 纬度
+     * @param cursor 上一页返回的游标，首次查询不传
+     * @return 商铺列表与下一页游标
+     */
+    @GetMapping("/of/type/scroll")
+    public Result scrollShopByType(
+            @RequestParam("typeId") Integer typeId,
+            @RequestParam("x") Double x,
+            @RequestParam("y") Double y,
+            @RequestParam(value = "cursor", required = false) String cursor
+    ) {
+        return shopService.scrollShopByType(typeId, x, y, cursor);
+    }
+
     /**
      * 根据商铺名称关键字分页查询商铺信息
      * @param name 商铺名称关键字
@@ -79,11 +114,6 @@ public class ShopController {
             @RequestParam(value = "name", required = false) String name,
             @RequestParam(value = "current", defaultValue = "1") Integer current
     ) {
-        // 根据类型分页查询
-        Page<Shop> page = shopService.query()
-                .like(StrUtil.isNotBlank(name), "name", name)
-                .page(new Page<>(current, SystemConstants.MAX_PAGE_SIZE));
-        // 返回数据
-        return Result.ok(page.getRecords());
+        return shopService.queryShopByName(name, current);
     }
 }
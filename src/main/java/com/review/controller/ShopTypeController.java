@@ -1,15 +1,19 @@
 package com.review.controller;
 
 
-import com.review.dto.Result;
-import com.review.entity.ShopType;
+import com.review.dto.ShopTypeSnapshot;
 import com.review.service.IShopTypeService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import javax.annotation.Resource;
-import java.util.List;
 
 @RestController
 @RequestMapping("/shop-type")
@@ -17,9 +21,26 @@ public class ShopTypeController {
     @Resource
     private IShopTypeService typeService;
 
+    /**
+     * 查询店铺类型列表，直接输出快照中序列化好的响应体
+     * 请求头 If-None-Match 包含当前 ETag 时返回 304
+     */
     @GetMapping("list")
-    public Result queryTypeList() {
-        List<ShopType> shopTypeList = typeService.queryAll();
-        return Result.ok(shopTypeList);
+    public ResponseEntity<byte[]> queryTypeList(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        ShopTypeSnapshot snapshot = typeService.getSnapshot();
+        // no-cache：客户端与 CDN 可以缓存，但每次使用前需携带 ETag 重新验证
+        // If-None-Match 可能带多个 ETag 或 W/ 前缀，包含当前 ETag 即视为未变化
+        if (ifNoneMatch != null && ifNoneMatch.contains(snapshot.getEtag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(snapshot.getEtag())
+                    .cacheControl(CacheControl.noCache().cachePublic())
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .eTag(snapshot.getEtag())
+                .cacheControl(CacheControl.noCache().cachePublic())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(snapshot.getBody());
     }
 }
@@ -85,12 +85,11 @@ public class UserController {
 
     @GetMapping("/{id}")
     public Result queryUserById(@PathVariable("id") Long userId) {
-        // 查询详情
-        User user = userService.getById(userId);
-        if (user == null) {
+        // 查询详情（走 user 缓存区域）
+        UserDTO userDTO = userService.queryUserDTO(userId);
+        if (userDTO == null) {
             return Result.ok();
         }
-        UserDTO userDTO = BeanUtil.copyProperties(user, UserDTO.class);
         return Result.ok(userDTO);
     }
 
@@ -0,0 +1,17 @@
+package com.review.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 按距离滚动分页的结果
+ */
+@Data
+public class GeoScrollResult {
+    private List<?> list;
+    /**
+     * 下一页游标，为 null 表示没有下一页
+     */
+    private String cursor;
+}
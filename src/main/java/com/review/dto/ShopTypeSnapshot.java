@@ -0,0 +1,35 @@
+package com.review.dto;
+
+import com.review.entity.ShopType;
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 店铺类型快照：不可变，版本号变化时整体替换
+ * 同时保存序列化好的响应体与 ETag，请求时直接输出
+ */
+@Getter
+public class ShopTypeSnapshot {
+
+    private final long version;
+
+    private final List<ShopType> types;
+
+    /**
+     * Result.ok(types) 序列化后的 JSON
+     */
+    private final byte[] body;
+
+    private final String etag;
+
+    public ShopTypeSnapshot(long version, List<ShopType> types, byte[] body) {
+        this.version = version;
+        this.types = Collections.unmodifiableList(types);
+        this.body = body;
+        // 版本号 + 内容摘要，各节点内容一致时 ETag 一致
+        this.etag = "\"" + version + "-" + Integer.toHexString(Arrays.hashCode(body)) + "\"";
+    }
+}
@@ -10,6 +10,8 @@ public interface IBlogService extends IService<Blog> {
 
     Result queryBlogById(Long id);
 
+    Blog queryBlog(Long id);
+
     Result likeBlog(Long id);
 
     Result queryBlogLikes(Long id);
@@ -4,6 +4,9 @@ import com.review.dto.Result;
 import com.review.entity.Shop;
 import com.baomidou.mybatisplus.extension.service.IService;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 public interface IShopService extends IService<Shop> {
 
     /**
@@ -13,6 +16,20 @@ public interface IShopService extends IService<Shop> {
      */
     Result queryById(Long id);
 
+    /**
+     * 根据商铺 id 异步查询商铺信息
+     * @param id
+     * @return
+     */
+    CompletableFuture<Result> queryByIdAsync(Long id);
+
+    /**
+     * 新增商铺
+     * @param shop
+     * @return 商铺id
+     */
+    Result saveShop(Shop shop);
+
     /**
      * 更新商铺
      * @param shop
@@ -20,5 +37,42 @@ public interface IShopService extends IService<Shop> {
      */
     Result update(Shop shop);
 
+    /**
+     * 按主键分页读取店铺
+     * @param lastId 上一页最大 id
+     * @return 下一页店铺，为空表示读取完毕
+     */
+    List<Shop> queryShopsAfter(Long lastId);
+
+    /**
+     * 提交全量重建店铺 GEO 索引，在后台执行
+     * @return false 表示已有重建在进行
+     */
+    boolean reloadShopGeo();
+
     Result queryShopByType(Integer typeId, Integer current, Double x, Double y);
+
+    /**
+     * 根据名称关键字分页查询店铺
+     * @param name 名称关键字，为空表示不限
+     * @param current 页码
+     * @return 店铺列表
+     */
+    Result queryShopByName(String name, Integer current);
+
+    /**
+     * 按字段排序分页查询类型下的店铺
+     * @param area 商圈，为空表示不限
+     * @param sortBy 排序字段：score、sold、comments、avgPrice
+     * @param desc 是否降序，为空时使用字段的默认顺序
+     * @return 店铺列表
+     */
+    Result queryShopBySort(Integer typeId, String area, String sortBy, Boolean desc, Integer current);
+
+    /**
+     * 按距离滚动查询店铺
+     * @param cursor 上一页返回的游标，首次查询为空
+     * @return 店铺列表与下一页游标
+     */
+    Result scrollShopByType(Integer typeId, Double x, Double y, String cursor);
 }
@@ -1,5 +1,6 @@
 package com.review.service;
 
+import com.review.dto.ShopTypeSnapshot;
 import com.review.entity.ShopType;
 import com.baomidou.mybatisplus.extension.service.IService;
 
@@ -9,4 +10,8 @@ public interface IShopTypeService extends IService<ShopType> {
 
     List<ShopType> queryAll();
 
+    ShopTypeSnapshot getSnapshot();
+
+    void onTypesChanged();
+
 }
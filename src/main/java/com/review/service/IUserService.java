@@ -3,6 +3,7 @@ package com.review.service;
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.review.dto.LoginFormDTO;
 import com.review.dto.Result;
+import com.review.dto.UserDTO;
 import com.review.entity.User;
 
 import javax.servlet.http.HttpSession;
@@ -17,4 +18,6 @@ public interface IUserService extends IService<User> {
     Result sign();
 
     Result signCount();
+
+    UserDTO queryUserDTO(Long id);
 }
@@ -5,6 +5,8 @@ import com.review.entity.VoucherOrder;
 import com.baomidou.mybatisplus.extension.service.IService;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+
 
 public interface IVoucherOrderService extends IService<VoucherOrder> {
 
@@ -17,4 +19,10 @@ public interface IVoucherOrderService extends IService<VoucherOrder> {
      */
     void createVoucherOrder(VoucherOrder voucherOrder);
 
+    /**
+     * 批量创建订单，一批订单在一个事务中完成
+     * @param voucherOrders
+     */
+    void createVoucherOrders(List<VoucherOrder> voucherOrders);
+
 }
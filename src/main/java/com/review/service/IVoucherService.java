@@ -4,10 +4,23 @@ import com.review.dto.Result;
 import com.review.entity.Voucher;
 import com.baomidou.mybatisplus.extension.service.IService;
 
+import java.util.List;
+
 
 public interface IVoucherService extends IService<Voucher> {
 
     Result queryVoucherOfShop(Long shopId);
 
+    List<Voucher> queryVouchersOfShop(Long shopId);
+
+    void addVoucher(Voucher voucher);
+
     void addSeckillVoucher(Voucher voucher);
+
+    /**
+     * 补充秒杀券库存
+     * @param voucherId 优惠券id
+     * @param amount 增加的库存
+     */
+    Result addSeckillStock(Long voucherId, Integer amount);
 }
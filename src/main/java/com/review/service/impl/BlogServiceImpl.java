@@ -15,6 +15,9 @@ import com.review.service.IBlogService;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.review.service.IFollowService;
 import com.review.service.IUserService;
+import com.review.utils.CacheClient;
+import com.review.utils.CacheStrategy;
+import com.review.utils.Cached;
 import com.review.utils.SystemConstants;
 import com.review.utils.UserHolder;
 import org.springframework.data.redis.core.StringRedisTemplate;
@@ -24,10 +27,10 @@ import org.springframework.stereotype.Service;
 import javax.annotation.Resource;
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
-import static com.review.utils.RedisConstants.BLOG_LIKED_KEY;
-import static com.review.utils.RedisConstants.FEED_KEY;
+import static com.review.utils.RedisConstants.*;
 
 @Service
 public class BlogServiceImpl extends ServiceImpl<BlogMapper, Blog> implements IBlogService {
@@ -40,6 +43,8 @@ public class BlogServiceImpl extends ServiceImpl<BlogMapper, Blog> implements IB
     private IUserService userService;
     @Resource
     private StringRedisTemplate stringRedisTemplate;
+    @Resource
+    private CacheClient cacheClient;
 
     @Override
     public Result saveBlog(Blog blog) {
@@ -77,11 +82,9 @@ public class BlogServiceImpl extends ServiceImpl<BlogMapper, Blog> implements IB
                 .page(new Page<>(current, SystemConstants.MAX_PAGE_SIZE));
         // 获取当前页数据
         List<Blog> records = page.getRecords();
-        // 赋值用户信息   赋值帖子是否被当前用户点赞过
-        records.forEach(blog -> {
-            queryBlogUser(blog);
-            isBlogLiked(blog);
-        });
+        // 赋值用户信息（批量查询缓存）   赋值帖子是否被当前用户点赞过
+        queryBlogUser(records);
+        records.forEach(this::isBlogLiked);
         return Result.ok(records);
     }
 
@@ -91,19 +94,31 @@ public class BlogServiceImpl extends ServiceImpl<BlogMapper, Blog> implements IB
      * @return
      */
     public Result queryBlogById(Long id) {
-        // 1. 查询 blog
-        Blog blog = getById(id);
-        if (blog == null) {
+        // 1. 查询 blog（经代理走 blog 缓存区域），复制一份再填充用户相关字段，避免修改缓存中的对象
+        Blog cached = blogService.queryBlog(id);
+        if (cached == null) {
             return Result.fail("笔记不存在！！");
         }
+        Blog blog = BeanUtil.copyProperties(cached, Blog.class);
         // 2. 查询 blog 有关的用户
-        queryBlogUser(blog);
+        queryBlogUser(Collections.singletonList(blog));
         // 3. 判断当前 blog 是否被当前用户点赞
         isBlogLiked(blog);
 
         return Result.ok(blog);
     }
 
+    /**
+     * 根据 id 查询博客本身（blog 缓存区域），不含作者与点赞状态
+     * @param id 博客 id
+     * @return 博客，不存在返回 null
+     */
+    @Override
+    @Cached(region = "blog", strategy = CacheStrategy.MUTEX)
+    public Blog queryBlog(Long id) {
+        return getById(id);
+    }
+
     private void isBlogLiked(Blog blog) {
         UserDTO userDTO = UserHolder.getUser();
         if (userDTO == null) {
@@ -141,6 +156,8 @@ public class BlogServiceImpl extends ServiceImpl<BlogMapper, Blog> implements IB
                 stringRedisTemplate.opsForZSet().add(key, userId.toString(), System.currentTimeMillis());
             }
         }
+        // 5. 点赞数变化，删除博客缓存
+        cacheClient.delete(CACHE_BLOG_KEY + id);
         return Result.ok();
     }
 
@@ -154,12 +171,11 @@ public class BlogServiceImpl extends ServiceImpl<BlogMapper, Blog> implements IB
         }
         // 2. 解析出期中的用户 id
         List<Long> ids = top5.stream().map(Long::valueOf).collect(Collectors.toList());
-        String idStr = StrUtil.join(",", ids);
-        // 3. 根据用户 id 查询用户 WHERE id IN (5, 1) ORDER BY FIELD(id, 5, 1)
-        List<UserDTO> userDTOList = userService.query()
-                .in("id", ids).last("ORDER BY FIELD(id," + idStr + ")").list()
+        // 3. 根据用户 id 批量查询用户缓存，未命中的一次性查库，结果与 id 顺序一致
+        List<UserDTO> userDTOList = cacheClient
+                .queryBatch(CACHE_USER_KEY, ids, UserDTO.class, this::queryUserDTOs, CACHE_USER_TTL, TimeUnit.MINUTES)
                 .stream()
-                .map(user -> BeanUtil.copyProperties(user, UserDTO.class))
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
         return Result.ok(userDTOList);
     }
@@ -203,10 +219,8 @@ public class BlogServiceImpl extends ServiceImpl<BlogMapper, Blog> implements IB
         List<Blog> blogList = query().in("id", ids)
                 .last("ORDER BY FIELD(id," + idStr + ")").list();
 
-        blogList.forEach(blog -> {
-            queryBlogUser(blog);
-            isBlogLiked(blog);
-        });
+        queryBlogUser(blogList);
+        blogList.forEach(this::isBlogLiked);
 
         ScrollResult scrollResult = new ScrollResult();
         scrollResult.setOffset(nextOffset);
@@ -217,14 +231,30 @@ public class BlogServiceImpl extends ServiceImpl<BlogMapper, Blog> implements IB
     }
 
     /**
-     * 封装博客作者信息
-     * @param blog 博客
+     * 封装博客作者信息，一次批量查询所有作者
+     * @param blogs 博客
+     */
+    private void queryBlogUser(List<Blog> blogs) {
+        List<Long> userIds = blogs.stream().map(Blog::getUserId).collect(Collectors.toList());
+        List<UserDTO> users = cacheClient
+                .queryBatch(CACHE_USER_KEY, userIds, UserDTO.class, this::queryUserDTOs, CACHE_USER_TTL, TimeUnit.MINUTES);
+        for (int i = 0; i < blogs.size(); i++) {
+            UserDTO user = users.get(i);
+            if (user != null) {
+                blogs.get(i).setName(user.getNickName());
+                blogs.get(i).setIcon(user.getIcon());
+            }
+        }
+    }
+
+    /**
+     * 根据 id 批量查询用户
+     * @param ids 用户 id
+     * @return 用户 id -> 用户信息
      */
-    private void queryBlogUser(Blog blog) {
-        Long userId = blog.getUserId();
-        User user = userService.getById(userId);
-        blog.setName(user.getNickName());
-        blog.setIcon(user.getIcon());
+    private Map<Long, UserDTO> queryUserDTOs(Collection<Long> ids) {
+        return userService.listByIds(ids).stream()
+                .collect(Collectors.toMap(User::getId, user -> BeanUtil.copyProperties(user, UserDTO.class)));
     }
 
 }
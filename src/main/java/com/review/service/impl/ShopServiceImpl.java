@@ -1,39 +1,52 @@
 package com.review.service.impl;
 
+import cn.hutool.core.bean.BeanUtil;
+import cn.hutool.core.lang.UUID;
 import cn.hutool.core.util.BooleanUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.json.JSON;
 import cn.hutool.json.JSONObject;
-import cn.hutool.json.JSONUtil;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.review.dto.GeoScrollResult;
 import com.review.dto.Result;
 import com.review.entity.Shop;
+import com.review.entity.ShopType;
 import com.review.mapper.ShopMapper;
 import com.review.service.IShopService;
+import com.review.service.IShopTypeService;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.review.utils.BloomFilterGuard;
 import com.review.utils.CacheClient;
 import com.review.utils.RedisConstants;
-import com.review.utils.RedisData;
+import com.review.utils.ShopGeoIndex;
+import com.review.utils.ShopGeoLoader;
+import com.review.utils.ShopNameIndex;
+import com.review.utils.ShopSortField;
+import com.review.utils.ShopSortIndex;
 import com.review.utils.SystemConstants;
 import org.springframework.data.geo.Distance;
-import org.springframework.data.geo.GeoResult;
 import org.springframework.data.geo.GeoResults;
 import org.springframework.data.redis.connection.RedisGeoCommands;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.domain.geo.GeoReference;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 
-import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import static com.review.utils.RedisConstants.*;
 
@@ -45,6 +58,77 @@ public class ShopServiceImpl extends ServiceImpl<ShopMapper, Shop> implements IS
 
     @Resource
     private CacheClient cacheClient;
+    @Resource
+    private BloomFilterGuard bloomFilterGuard;
+    @Resource
+    private ShopGeoIndex shopGeoIndex;
+    @Resource
+    private ShopGeoLoader shopGeoLoader;
+    @Resource
+    private ShopSortIndex shopSortIndex;
+    @Resource
+    private ShopNameIndex shopNameIndex;
+    @Resource
+    private IShopTypeService shopTypeService;
+
+    /**
+     * 启动时注册店铺 id 布隆过滤器，Redis 中不存在时从 tb_shop 全量构建
+     * TTL 抖动与重建并发上限见 CacheConfig 中的 shop 缓存区域
+     * 开启本地空间索引时，同时从 tb_shop 加载店铺坐标；开启名称索引时加载店铺名称
+     */
+    @PostConstruct
+    private void initShopIndexes() {
+        bloomFilterGuard.register(CACHE_SHOP_KEY, SHOP_BLOOM_EXPECTED_INSERTIONS, SHOP_BLOOM_FPP, this::queryIdsAfter);
+        if (shopGeoIndex.isEnabled()) {
+            shopGeoIndex.load(this::queryLocationsAfter);
+        }
+        if (shopNameIndex.isEnabled()) {
+            shopNameIndex.load(lastId -> query().select("id", "name", "score", "sold")
+                    .gt("id", lastId)
+                    .orderByAsc("id")
+                    .last("LIMIT " + SystemConstants.DB_BATCH_SIZE)
+                    .list());
+        }
+    }
+
+    /**
+     * 按主键分页读取店铺坐标
+     * @param lastId 上一页最大 id
+     * @return 下一页店铺，只包含 id、type_id、x、y
+     */
+    private List<Shop> queryLocationsAfter(Long lastId) {
+        return query().select("id", "type_id", "x", "y")
+                .gt("id", lastId)
+                .orderByAsc("id")
+                .last("LIMIT " + SystemConstants.DB_BATCH_SIZE)
+                .list();
+    }
+
+    /**
+     * 按主键分页读取店铺 id
+     * @param lastId 上一页最大 id
+     * @return 下一页 id
+     */
+    private List<Long> queryIdsAfter(Long lastId) {
+        return query().select("id")
+                .gt("id", lastId)
+                .orderByAsc("id")
+                .last("LIMIT " + SystemConstants.DB_BATCH_SIZE)
+                .list()
+                .stream().map(Shop::getId).collect(Collectors.toList());
+    }
+
+    /**
+     * 按主键分页读取店铺
+     * @param lastId 上一页最大 id
+     * @return 下一页店铺
+     */
+    public List<Shop> queryShopsAfter(Long lastId) {
+        return query().gt("id", lastId)
+                .orderByAsc("id")
+                .last("LIMIT " + SystemConstants.DB_BATCH_SIZE)
+                .list();
+    }
 
     /**
      * 根据商铺 id 查询商铺信息
@@ -53,16 +137,16 @@ public class ShopServiceImpl extends ServiceImpl<ShopMapper, Shop> implements IS
      */
     public Result queryById(Long id) {
         // 防止缓存穿透 获取店铺信息
-        Shop shop = cacheClient
-                .queryWithPenetrateGuard(CACHE_SHOP_KEY, id, Shop.class, this::getById, CACHE_SHOP_TTL, TimeUnit.SECONDS);
+//        Shop shop = cacheClient
+//                .queryWithPenetrateGuard(CACHE_SHOP_KEY, id, Shop.class, this::getById, CACHE_SHOP_TTL, TimeUnit.SECONDS);
 
         // 防止缓存击穿 获取店铺信息 互斥锁方式
 //        Shop shop = cacheClient
 //                .queryWithMutex(CACHE_SHOP_KEY, id, Shop.class, this::getById, CACHE_SHOP_TTL, TimeUnit.MINUTES);
 
-        // 防止缓存击穿 获取店铺信息 逻辑过期方式
-//        Shop shop = cacheClient
-//                .queryWithLogicalExpire(CACHE_SHOP_KEY, id, Shop.class, this::getById, CACHE_SHOP_TTL, TimeUnit.MINUTES);
+        // 防止缓存击穿 获取店铺信息 逻辑过期方式（启动时已预热为逻辑过期格式，未预热的店铺首次访问时加载）
+        Shop shop = cacheClient
+                .queryWithLogicalExpire(CACHE_SHOP_KEY, id, Shop.class, this::getById, CACHE_SHOP_TTL, TimeUnit.MINUTES);
 
         if (shop == null) {
             return Result.fail("店铺不存在！！！");
@@ -72,38 +156,26 @@ public class ShopServiceImpl extends ServiceImpl<ShopMapper, Shop> implements IS
         return Result.ok(shop);
     }
 
+    /**
+     * 根据商铺 id 异步查询商铺信息，缓存命中时不阻塞请求线程
+     * @param id 商铺 id
+     * @return 商铺信息
+     */
+    @Override
+    public CompletableFuture<Result> queryByIdAsync(Long id) {
+        return cacheClient
+                .queryWithLogicalExpireAsync(CACHE_SHOP_KEY, id, Shop.class, this::getById, CACHE_SHOP_TTL, TimeUnit.MINUTES)
+                .thenApply(shop -> shop == null ? Result.fail("店铺不存在！！！") : Result.ok(shop));
+    }
+
     /**
      * 缓存穿透保护 获得店铺信息
      * @param id
      * @return 店铺信息
      */
     public Shop queryWithPenetrationGuard(Long id) {
-        // 1. 从 Redis 中查询商铺缓存
-        String key = RedisConstants.CACHE_SHOP_KEY + id;
-        String shopJson = stringRedisTemplate.opsForValue().get(key);
-        // 2. 判断是否存在
-        if (StrUtil.isNotBlank(shopJson)) {
-            // 3. 存在直接返回
-            return JSONUtil.toBean(shopJson, Shop.class);
-        }
-        // 判断命中的是否是空值   "" ！= null
-        if (shopJson != null) {     // 说明是 ""
-            // 返回 null
-            return null;
-        }
-        // 4. 不存在，根据 id 查询数据库
-        Shop shop = getById(id);
-        // 5. 不存在，返回错误
-        if (shop == null) {
-            // 将空值写入 Redis
-            stringRedisTemplate.opsForValue().set(key, "", CACHE_NULL_TTL, TimeUnit.MINUTES);
-            // 返回 null
-            return null;
-        }
-        // 6. 存在，写入 Redis
-        stringRedisTemplate.opsForValue().set(key, JSONUtil.toJsonStr(shop), CACHE_SHOP_TTL, TimeUnit.MINUTES);
-        // 7. 返回
-        return shop;
+        // 由 CacheClient 统一处理一级缓存、布隆过滤器、空值缓存与序列化格式
+        return cacheClient.queryWithPenetrateGuard(CACHE_SHOP_KEY, id, Shop.class, this::getById, CACHE_SHOP_TTL, TimeUnit.MINUTES);
     }
 
     /**
@@ -112,59 +184,8 @@ public class ShopServiceImpl extends ServiceImpl<ShopMapper, Shop> implements IS
      * @return
      */
     public Shop queryWithMutex(Long id) {
-        // 1. 从 Redis 中查询缓存数据
-        String key = RedisConstants.CACHE_SHOP_KEY + id;
-        String shopJson = stringRedisTemplate.opsForValue().get(key);
-        // 2. 判断是否存在
-        if (StrUtil.isNotBlank(shopJson)) {
-            // 如果存在，直接返回
-            return JSONUtil.toBean(shopJson, Shop.class);
-        }
-        // 3. 判断是否命中的值是空值
-        if (shopJson != null) { // 也就是 ""
-            return null;
-        }
-        // 4. 缓存重构
-        // 4.1 获取互斥锁
-        String lockKey = RedisConstants.LOCK_SHOP_KEY + id;
-        Shop shop = null;
-        try {
-            Boolean isLock = tryLock(lockKey);
-            // 4.2 判断是否获取成功
-            if (!isLock) {
-                // 4.3 失败，则休眠重试
-                Thread.sleep(50);
-                // 递归继续查询
-                return queryWithMutex(id);
-            }
-            // 4.4 成功，根据id查询数据库
-            // double check 缓存
-            String s = stringRedisTemplate.opsForValue().get(key);
-            if (StrUtil.isNotBlank(s)) {
-                shop = JSONUtil.toBean(s, Shop.class);
-                return shop;
-            }
-            if (s != null) {
-                return null;
-            }
-            shop = getById(id);
-            // 模拟重建数据缓存的延时
-            Thread.sleep(200);
-            // 5.不存在，返回错误
-            if (shop == null) {
-                return null;
-            }
-            // 6.写入redis
-            stringRedisTemplate.opsForValue().set(key, JSONUtil.toJsonStr(shop), CACHE_SHOP_TTL, TimeUnit.MINUTES);
-
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        } finally {
-            // 释放锁
-            delLock(lockKey);
-        }
-
-        return shop;
+        // 未命中时同一 JVM 内的并发请求合并为一次加载，只有一个线程竞争 Redis 互斥锁，其余等待通知而非休眠重试
+        return cacheClient.queryWithMutex(CACHE_SHOP_KEY, id, Shop.class, this::getById, CACHE_SHOP_TTL, TimeUnit.MINUTES);
     }
 
     /**
@@ -173,66 +194,10 @@ public class ShopServiceImpl extends ServiceImpl<ShopMapper, Shop> implements IS
      * @return
      */
     public Shop queryWithLogicalExpire(Long id) {
-        // 1. 查询缓存
-        String key = RedisConstants.CACHE_SHOP_KEY + id;
-        String shopJson = stringRedisTemplate.opsForValue().get(key);
-        if (StrUtil.isBlank(shopJson)) {
-//            saveShop2RedisCache(id, 20L);
-            return null;
-        }
-
-        // 2. 若命中缓存，反序列化
-        RedisData redisData = JSONUtil.toBean(shopJson, RedisData.class);
-        Shop shop = JSONUtil.toBean(redisData.getData().toString(), Shop.class);    // 店铺信息
-        LocalDateTime expireTime = redisData.getExpireTime();                       // 逻辑过期时间
-
-        // 3. 若没逻辑过期，直接返回
-        if (expireTime.isAfter(LocalDateTime.now())) {
-            return shop;
-        }
-
-        // 4. 过期则重建，最终都返回旧的数据
-        String lockKey = RedisConstants.LOCK_SHOP_KEY + id;
-        Boolean isLock = false;
-        try {
-            isLock = tryLock(lockKey);
-            // 若拿到锁，开启重建
-            if (isLock) {
-                // double check 缓存 若已经被重建好，返回新数据
-                String checkShopJson = stringRedisTemplate.opsForValue().get(key);
-                if (StrUtil.isNotBlank(checkShopJson)) {
-                    RedisData checkRedisData = JSONUtil.toBean(checkShopJson, RedisData.class);
-                    Shop checkShop = JSONUtil.toBean(checkRedisData.getData().toString(), Shop.class);
-                    LocalDateTime checkExpireTime = checkRedisData.getExpireTime();
-                    if (checkExpireTime.isAfter(LocalDateTime.now())) {
-                        return checkShop;
-                    }
-                }
-
-                // 重建
-                CACHE_REBUILD_EXECUTOR.execute(() -> {
-                    try {
-                        this.saveShop2RedisCache(id, 20L);
-                    } catch (Exception e) {
-                        throw new RuntimeException(e);
-                    } finally {
-                        // 释放互斥锁
-                        delLock(lockKey);
-                    }
-                });
-            }
-        } catch (RuntimeException e) {
-            throw new RuntimeException("获取锁、检查缓存异常", e);
-        }
-
-        return shop;
+        // 过期则由 CacheClient 获取互斥锁后异步重建，始终返回旧数据
+        return cacheClient.queryWithLogicalExpire(CACHE_SHOP_KEY, id, Shop.class, this::getById, 20L, TimeUnit.SECONDS);
     }
 
-    /**
-     * 线程池
-     */
-    public static final ExecutorService CACHE_REBUILD_EXECUTOR = Executors.newFixedThreadPool(10);
-
     /**
      * 获取互斥锁
      * @param key
@@ -262,12 +227,27 @@ public class ShopServiceImpl extends ServiceImpl<ShopMapper, Shop> implements IS
         if (shop == null) {
             throw new RuntimeException("数据库中无此店铺信息:" + shopId);
         }
-        // 2. 封装逻辑过期时间
-        RedisData redisData = new RedisData();
-        redisData.setData(shop);
-        redisData.setExpireTime(LocalDateTime.now().plusSeconds(expireSeconds));
-        // 3. 写入 Redis
-        stringRedisTemplate.opsForValue().set(CACHE_SHOP_KEY + shopId, JSONUtil.toJsonStr(redisData));
+        // 2. 封装逻辑过期时间，写入 Redis 并通知各节点清除一级缓存
+        cacheClient.setWithLogicalExpire(CACHE_SHOP_KEY + shopId, shop, expireSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 新增商铺
+     * @param shop
+     * @return 商铺id
+     */
+    public Result saveShop(Shop shop) {
+        // 1. 写入数据库
+        save(shop);
+        // 2. 加入布隆过滤器
+        bloomFilterGuard.add(CACHE_SHOP_KEY, shop.getId());
+        // 3. 写入 GEO 索引，并同步本地空间索引
+        shopGeoLoader.save(null, shop);
+        shopGeoIndex.put(shop);
+        // 4. 写入排序索引与名称索引
+        shopSortIndex.save(null, shop);
+        shopNameIndex.put(shop);
+        return Result.ok(shop.getId());
     }
 
     /**
@@ -281,21 +261,61 @@ public class ShopServiceImpl extends ServiceImpl<ShopMapper, Shop> implements IS
         if (id == null) {
             return Result.fail("店铺id不能为空");
         }
-        // 1. 更新数据库
+        Shop old = getById(id);
+        if (old == null) {
+            return Result.fail("店铺不存在");
+        }
+        // 1. 更新数据库（入参可能只包含部分字段，以数据库为准）
         updateById(shop);
-        // 2. 删除缓存
-        stringRedisTemplate.delete(RedisConstants.CACHE_SHOP_KEY + id);
+        Shop updated = getById(id);
+        // 2. 事务提交后再更新缓存与索引：提交前其他节点读到的仍是旧数据，回滚时也不会留下未提交的索引
+        afterCommit(() -> {
+            // 2.1. 删除缓存（同时广播清除各节点的一级缓存）
+            cacheClient.delete(RedisConstants.CACHE_SHOP_KEY + id);
+            // 2.2. 更新 GEO 索引，类型变化时从旧类型中删除；同步本地空间索引
+            shopGeoLoader.save(old, updated);
+            shopGeoIndex.put(updated);
+            // 2.3. 更新排序索引与名称索引
+            shopSortIndex.save(old, updated);
+            shopNameIndex.put(updated);
+        });
         return Result.ok();
     }
 
+    /**
+     * 在当前事务提交后执行，没有事务时立即执行
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * 全量重建店铺 GEO 索引：后台按主键分页读取 tb_shop，写入影子 key 后原子替换
+     * @return false 表示已有重建在进行
+     */
+    @Override
+    public boolean reloadShopGeo() {
+        List<Long> typeIds = shopTypeService.list().stream().map(ShopType::getId).collect(Collectors.toList());
+        return shopGeoLoader.reloadAsync(this::queryLocationsAfter, typeIds);
+    }
+
     @Override
     public Result queryShopByType(Integer typeId, Integer current, Double x, Double y) {
         // 1. 判断是否需要根据坐标查询
         if (x == null || y == null) {
-            // 不需要坐标查询，直接数据库查
+            // 不需要坐标查询，直接数据库查（不查询总数）
             Page<Shop> shopPage = query()
                     .eq("type_id", typeId)
-                    .page(new Page<>(current, SystemConstants.DEFAULT_PAGE_SIZE));
+                    .page(new Page<>(current, SystemConstants.DEFAULT_PAGE_SIZE, false));
             // 返回
             return Result.ok(shopPage);
         }
@@ -304,44 +324,200 @@ public class ShopServiceImpl extends ServiceImpl<ShopMapper, Shop> implements IS
         int from = (current - 1) * SystemConstants.DEFAULT_PAGE_SIZE;
         int end = current * SystemConstants.DEFAULT_PAGE_SIZE;
 
-        // 3. 查询 redis，按照距离排序、分页
-        String key = SHOP_GEO_KEY + typeId;
+        // 3. 查询附近的店铺，按照距离排序、分页
+        List<String> members = searchNearby(typeId, x, y, end);
+        if (members.size() <= from) {
+            // 没有下一页了
+            return Result.ok();
+        }
+        // 4. 截取 from - end，解析出 id 与距离
+        List<Long> idList = new ArrayList<>(members.size() - from);
+        Map<Long, Double> distanceMap = new HashMap<>(members.size() - from); // 映射：店铺id 用户到店铺的distance
+        for (String member : members.subList(from, members.size())) {
+            int idx = member.indexOf(':');
+            Long shopId = Long.parseLong(member.substring(0, idx));
+            idList.add(shopId);
+            distanceMap.put(shopId, Double.parseDouble(member.substring(idx + 1)));
+        }
+        // 5. 根据 id 查询 Shop
+        return Result.ok(queryShopsWithDistance(idList, distanceMap));
+    }
+
+    /**
+     * 根据名称关键字分页查询店铺
+     * 名称索引可用时从索引查询 id（前缀匹配优先，其次按评分、销量），再批量读取店铺缓存；否则回退到 LIKE 查询
+     */
+    @Override
+    public Result queryShopByName(String name, Integer current) {
+        int size = SystemConstants.MAX_PAGE_SIZE;
+        if (StrUtil.isBlank(name) || !shopNameIndex.isAvailable()) {
+            Page<Shop> page = query()
+                    .like(StrUtil.isNotBlank(name), "name", name)
+                    .page(new Page<>(current, size, false));
+            return Result.ok(page.getRecords());
+        }
+        int from = (current - 1) * size;
+        List<Long> ids = shopNameIndex.search(name, from + size);
+        if (ids.size() <= from) {
+            return Result.ok(Collections.emptyList());
+        }
+        List<Shop> shops = cacheClient.queryBatchWithLogicalExpire(CACHE_SHOP_KEY, ids.subList(from, ids.size()),
+                Shop.class, this::queryShopsByIds, CACHE_SHOP_TTL, TimeUnit.MINUTES);
+        return Result.ok(shops.stream().filter(Objects::nonNull).collect(Collectors.toList()));
+    }
+
+    /**
+     * 按字段排序分页查询类型下的店铺
+     * 从排序索引按排名截取 id，再批量读取店铺缓存；索引不存在（未预热）时回退到数据库排序
+     * @param area 商圈，为空表示不限
+     * @param sortBy 排序字段：score、sold、comments、avgPrice
+     * @param desc 是否降序，为空时使用字段的默认顺序
+     */
+    @Override
+    public Result queryShopBySort(Integer typeId, String area, String sortBy, Boolean desc, Integer current) {
+        ShopSortField field = ShopSortField.of(sortBy);
+        if (field == null) {
+            return Result.fail("不支持的排序字段");
+        }
+        boolean isDesc = desc == null ? field.isDesc() : desc;
+        int from = (current - 1) * SystemConstants.DEFAULT_PAGE_SIZE;
+        if (!shopSortIndex.exists(typeId.longValue(), field)) {
+            List<Shop> shops = query()
+                    .eq("type_id", typeId)
+                    .eq(StrUtil.isNotBlank(area), "area", area)
+                    .orderBy(true, !isDesc, field.getColumn())
+                    .orderByAsc("id")
+                    .page(new Page<>(current, SystemConstants.DEFAULT_PAGE_SIZE, false))
+                    .getRecords();
+            return Result.ok(shops);
+        }
+        List<Long> ids = shopSortIndex.range(typeId.longValue(), area, field, isDesc, from, SystemConstants.DEFAULT_PAGE_SIZE);
+        if (ids.isEmpty()) {
+            return Result.ok(Collections.emptyList());
+        }
+        List<Shop> shops = cacheClient.queryBatchWithLogicalExpire(
+                CACHE_SHOP_KEY, ids, Shop.class, this::queryShopsByIds, CACHE_SHOP_TTL, TimeUnit.MINUTES);
+        return Result.ok(shops.stream().filter(Objects::nonNull).collect(Collectors.toList()));
+    }
+
+    /**
+     * 按距离滚动查询店铺
+     * 首次查询执行一次 GEOSEARCH，取回按距离排好序的前 SHOP_GEO_CURSOR_MAX_SIZE 个 id 与距离，缓存在游标下；
+     * 之后每页只从缓存的结果中截取，不再重复计算距离
+     * @param cursor 上一页返回的游标，首次查询为空
+     * @return 店铺列表与下一页游标
+     */
+    @Override
+    public Result scrollShopByType(Integer typeId, Double x, Double y, String cursor) {
+        int size = SystemConstants.DEFAULT_PAGE_SIZE;
+        // 1. 解析游标：token:offset
+        String token = null;
+        int offset = 0;
+        if (StrUtil.isNotBlank(cursor)) {
+            int idx = cursor.lastIndexOf(':');
+            try {
+                token = cursor.substring(0, idx);
+                offset = Integer.parseInt(cursor.substring(idx + 1));
+            } catch (RuntimeException e) {
+                return Result.fail("游标格式错误");
+            }
+            if (offset < 0) {
+                return Result.fail("游标格式错误");
+            }
+        }
+        // 2. 从游标缓存中多取一个，用于判断是否还有下一页
+        List<String> page = null;
+        if (token != null) {
+            String key = SHOP_GEO_CURSOR_KEY + token;
+            page = stringRedisTemplate.opsForList().range(key, offset, offset + size);
+            if ((page == null || page.isEmpty()) && !BooleanUtil.isTrue(stringRedisTemplate.hasKey(key))) {
+                // 游标已过期，重新搜索
+                page = null;
+            }
+        }
+        if (page == null) {
+            // 3. 首次查询或游标已过期：执行一次 GEOSEARCH，结果缓存在新游标下
+            List<String> members = searchNearby(typeId, x, y, SHOP_GEO_CURSOR_MAX_SIZE);
+            token = UUID.randomUUID().toString(true);
+            if (!members.isEmpty()) {
+                String key = SHOP_GEO_CURSOR_KEY + token;
+                stringRedisTemplate.opsForList().rightPushAll(key, members);
+                stringRedisTemplate.expire(key, SHOP_GEO_CURSOR_TTL, TimeUnit.MINUTES);
+            }
+            page = offset >= members.size()
+                    ? Collections.emptyList()
+                    : members.subList(offset, Math.min(offset + size + 1, members.size()));
+        }
+        // 4. 解析 id 与距离，查询店铺
+        boolean hasMore = page.size() > size;
+        List<Long> ids = new ArrayList<>(size);
+        Map<Long, Double> distances = new HashMap<>(size);
+        for (String member : page.subList(0, Math.min(size, page.size()))) {
+            int idx = member.indexOf(':');
+            Long shopId = Long.parseLong(member.substring(0, idx));
+            ids.add(shopId);
+            distances.put(shopId, Double.parseDouble(member.substring(idx + 1)));
+        }
+        GeoScrollResult result = new GeoScrollResult();
+        result.setList(ids.isEmpty() ? Collections.emptyList() : queryShopsWithDistance(ids, distances));
+        result.setCursor(hasMore ? token + ":" + (offset + size) : null);
+        return Result.ok(result);
+    }
+
+    /**
+     * 查询附近的店铺，按距离升序
+     * 本地空间索引可用时在进程内计算，否则执行 GEOSEARCH
+     * @param limit 最多返回的个数
+     * @return 店铺 id:距离 列表
+     */
+    private List<String> searchNearby(Integer typeId, Double x, Double y, int limit) {
+        if (shopGeoIndex.isAvailable()) {
+            return shopGeoIndex.search(typeId.longValue(), x, y, SHOP_GEO_RADIUS, limit).stream()
+                    .map(hit -> hit.getId() + ":" + hit.getDistance())
+                    .collect(Collectors.toList());
+        }
         GeoResults<RedisGeoCommands.GeoLocation<String>> geoResults = stringRedisTemplate.opsForGeo()
-                // GEOSEARCH key BYLONLAT x y BYRADIUS 10 WITHDISTANCE
                 .search(
-                        key,
+                        ShopGeoLoader.geoKey(typeId.longValue()),
                         GeoReference.fromCoordinate(x, y),
-                        new Distance(5000),
-                        RedisGeoCommands.GeoSearchCommandArgs.newGeoSearchArgs().includeDistance().limit(end)
+                        new Distance(SHOP_GEO_RADIUS),
+                        RedisGeoCommands.GeoSearchCommandArgs.newGeoSearchArgs().includeDistance().sortAscending().limit(limit)
                 );
-
-        // 4. 解析出 id
         if (geoResults == null) {
-            return Result.ok();
+            return Collections.emptyList();
         }
-        List<GeoResult<RedisGeoCommands.GeoLocation<String>>> contentList = geoResults.getContent(); // 包含店铺id 距离
-        if (contentList.size() <= from) {
-            // 没有下一页了
-            return Result.ok();
+        return geoResults.getContent().stream()
+                .map(geoResult -> geoResult.getContent().getName() + ":" + geoResult.getDistance().getValue())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 根据 id 查询店铺，保持 id 的顺序，并填充距离
+     * 一次 MGET 读取店铺缓存，只有未命中的 id 查询数据库
+     * @param ids 按距离排好序的店铺 id
+     * @param distances 店铺 id -> 距离
+     */
+    private List<Shop> queryShopsWithDistance(List<Long> ids, Map<Long, Double> distances) {
+        List<Shop> cached = cacheClient.queryBatchWithLogicalExpire(
+                CACHE_SHOP_KEY, ids, Shop.class, this::queryShopsByIds, CACHE_SHOP_TTL, TimeUnit.MINUTES);
+        List<Shop> shopList = new ArrayList<>(cached.size());
+        for (Shop shop : cached) {
+            if (shop == null) {
+                continue;
+            }
+            // 缓存中的对象可能被一级缓存共享，复制后再填充距离
+            Shop copy = BeanUtil.copyProperties(shop, Shop.class);
+            copy.setDistance(distances.get(copy.getId()));
+            shopList.add(copy);
         }
-        // 4.1. 截取 from - end
-        List<Long> idList = new ArrayList<>(contentList.size());
-        Map<String, Distance> distanceMap = new HashMap<>(contentList.size()); // 映射：店铺id 用户到店铺的distance
-        contentList.stream().skip(from).forEach(geoResult -> {
-            // 4.2. 获取店铺 id
-            String shopIdStr = geoResult.getContent().getName();
-            idList.add(Long.parseLong(shopIdStr));
-            // 4.3. 获取距离
-            Distance distance = geoResult.getDistance();
-            distanceMap.put(shopIdStr, distance);
-        });
-        // 5. 根据 id 查询 Shop
-        String idStr = StrUtil.join(",", idList);
-        List<Shop> shopList = query().in("id", idList).last("ORDER BY FIELD(id," + idStr + ")").list();
-        shopList.forEach(shop -> {
-            shop.setDistance(distanceMap.get(shop.getId().toString()).getValue());
-        });
+        return shopList;
+    }
 
-        return Result.ok(shopList);
+    /**
+     * 批量查询店铺
+     * @return 店铺 id -> 店铺，不存在的 id 不放入 map
+     */
+    private Map<Long, Shop> queryShopsByIds(Collection<Long> ids) {
+        return listByIds(ids).stream().collect(Collectors.toMap(Shop::getId, shop -> shop));
     }
 }
@@ -1,7 +1,10 @@
 package com.review.service.impl;
 
 import cn.hutool.json.JSONUtil;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.review.dto.Result;
+import com.review.dto.ShopTypeSnapshot;
 import com.review.entity.ShopType;
 import com.review.mapper.ShopTypeMapper;
 import com.review.service.IShopTypeService;
@@ -12,21 +15,125 @@ import org.springframework.data.redis.core.ZSetOperations;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Resource;
+import java.io.Serializable;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import static com.review.utils.RedisConstants.CACHE_SHOP_TYPE_VERSION;
+import static com.review.utils.RedisConstants.SHOP_TYPE_VERSION_CHECK_MILLIS;
+
 @Service
 public class ShopTypeServiceImpl extends ServiceImpl<ShopTypeMapper, ShopType> implements IShopTypeService {
 
     @Resource
     private StringRedisTemplate stringRedisTemplate;
+    @Resource
+    private ObjectMapper objectMapper;
+
+    /**
+     * 当前快照，版本号变化时整体替换
+     */
+    private volatile ShopTypeSnapshot snapshot;
+
+    /**
+     * 上次检查 Redis 版本号的时间，检查间隔内直接使用当前快照
+     */
+    private volatile long lastVersionCheck;
 
     /**
      * 查询所有店铺信息
-     * @return 按 sort 排序的店铺类型列表
+     * @return 按 sort 排序的店铺类型列表（只读）
      */
     public List<ShopType> queryAll() {
+        return getSnapshot().getTypes();
+    }
+
+    /**
+     * 获取店铺类型快照，Redis 中的版本号变化时才重新加载
+     * @return 当前快照
+     */
+    public ShopTypeSnapshot getSnapshot() {
+        ShopTypeSnapshot current = snapshot;
+        long now = System.currentTimeMillis();
+        if (current != null && now - lastVersionCheck < SHOP_TYPE_VERSION_CHECK_MILLIS) {
+            return current;
+        }
+        long version = currentVersion();
+        lastVersionCheck = now;
+        if (current != null && current.getVersion() == version) {
+            return current;
+        }
+        return reload(version);
+    }
+
+    @Override
+    public boolean save(ShopType entity) {
+        boolean saved = super.save(entity);
+        if (saved) {
+            onTypesChanged();
+        }
+        return saved;
+    }
+
+    @Override
+    public boolean updateById(ShopType entity) {
+        boolean updated = super.updateById(entity);
+        if (updated) {
+            onTypesChanged();
+        }
+        return updated;
+    }
+
+    @Override
+    public boolean removeById(Serializable id) {
+        boolean removed = super.removeById(id);
+        if (removed) {
+            onTypesChanged();
+        }
+        return removed;
+    }
+
+    /**
+     * 店铺类型变更后调用：删除 Redis 中的列表缓存并递增版本号，各节点在下次检查时重新加载
+     * 经本服务写入时自动调用；直接修改数据库后通过 POST /cache/shop-type/refresh 调用
+     */
+    public void onTypesChanged() {
+        stringRedisTemplate.delete(RedisConstants.CACHE_SHOP_TYPE);
+        stringRedisTemplate.opsForValue().increment(CACHE_SHOP_TYPE_VERSION);
+        lastVersionCheck = 0;
+    }
+
+    private long currentVersion() {
+        String version = stringRedisTemplate.opsForValue().get(CACHE_SHOP_TYPE_VERSION);
+        if (version == null) {
+            // 首次使用，初始化为 0
+            stringRedisTemplate.opsForValue().setIfAbsent(CACHE_SHOP_TYPE_VERSION, "0");
+            return 0;
+        }
+        return Long.parseLong(version);
+    }
+
+    private synchronized ShopTypeSnapshot reload(long version) {
+        // double check，其他线程可能已加载
+        ShopTypeSnapshot current = snapshot;
+        if (current != null && current.getVersion() == version) {
+            return current;
+        }
+        List<ShopType> typeList = loadTypes();
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(Result.ok(typeList));
+            snapshot = new ShopTypeSnapshot(version, typeList, body);
+            return snapshot;
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 从 Redis 读取店铺类型列表，不存在时查询数据库并写回
+     */
+    private List<ShopType> loadTypes() {
         // 1. 从Redis中查询缓存
         String key = RedisConstants.CACHE_SHOP_TYPE;
         // 从 Redis 中获取所有元素
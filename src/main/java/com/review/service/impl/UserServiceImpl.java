@@ -12,6 +12,8 @@ import com.review.dto.UserDTO;
 import com.review.entity.User;
 import com.review.mapper.UserMapper;
 import com.review.service.IUserService;
+import com.review.utils.CacheClient;
+import com.review.utils.Cached;
 import com.review.utils.RegexUtils;
 import com.review.utils.UserHolder;
 import lombok.extern.slf4j.Slf4j;
@@ -40,6 +42,8 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements IU
 
     @Resource
     private StringRedisTemplate stringRedisTemplate;
+    @Resource
+    private CacheClient cacheClient;
 
     @Override
     public Result sendCode(String phone, HttpSession session) {
@@ -164,6 +168,18 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements IU
         return Result.ok(cnt);
     }
 
+    /**
+     * 根据 id 查询用户基本信息（user 缓存区域）
+     * @param id 用户 id
+     * @return 用户基本信息，不存在返回 null
+     */
+    @Override
+    @Cached(region = "user")
+    public UserDTO queryUserDTO(Long id) {
+        User user = getById(id);
+        return user == null ? null : BeanUtil.copyProperties(user, UserDTO.class);
+    }
+
     private User createUserWithPhone(String phone) {
         log.info("创建新用户:{}", phone);
         // 1. 创建用户
@@ -173,6 +189,8 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements IU
 //        user.setCreateTime(LocalDateTime.now());
         // 2. 保存用户
         save(user);
+        // 3. 清除可能存在的空值缓存
+        cacheClient.delete(CACHE_USER_KEY + user.getId());
         return user;
     }
 
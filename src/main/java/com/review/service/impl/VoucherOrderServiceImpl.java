@@ -1,6 +1,7 @@
 package com.review.service.impl;
 
 import cn.hutool.core.bean.BeanUtil;
+import cn.hutool.core.net.NetUtil;
 import com.review.dto.Result;
 import com.review.entity.VoucherOrder;
 import com.review.mapper.VoucherOrderMapper;
@@ -8,25 +9,44 @@ import com.review.service.ISeckillVoucherService;
 import com.review.service.IVoucherOrderService;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.review.utils.RedisIdWorker;
+import com.review.utils.SeckillShardRouter;
+import com.review.utils.SeckillStock;
+import com.review.utils.SoldOutRegistry;
 import com.review.utils.UserHolder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.redisson.api.RedissonClient;
-import org.springframework.aop.framework.AopContext;
-import org.springframework.core.io.ClassPathResource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.RedisStreamCommands;
+import org.springframework.data.redis.connection.RedisZSetCommands;
+import org.springframework.data.redis.connection.StringRedisConnection;
 import org.springframework.data.redis.connection.stream.*;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
-import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import static com.review.utils.RedisConstants.*;
 
 @Slf4j
 @Service
@@ -41,98 +61,375 @@ public class VoucherOrderServiceImpl extends ServiceImpl<VoucherOrderMapper, Vou
     @Resource
     private RedissonClient redissonClient;
 
-    private static final DefaultRedisScript<Long> SECKILL_SCRIPT;
-    static {
-        SECKILL_SCRIPT = new DefaultRedisScript<>();
-        SECKILL_SCRIPT.setLocation(new ClassPathResource("seckill.lua"));
-        SECKILL_SCRIPT.setResultType(Long.class);
-    }
+    @Resource
+    private MeterRegistry meterRegistry;
+    /**
+     * 代理对象，后台消费线程通过它调用事务方法
+     */
+    @Lazy
+    @Resource
+    private IVoucherOrderService proxy;
+
+    /**
+     * 消费者线程数，每个线程是消费者组中一个独立的消费者
+     */
+    @Value("${seckill.order.consumers:4}")
+    private int consumerCount;
+    /**
+     * 每次 XREADGROUP 读取的消息数，一批消息在一个事务中落库
+     */
+    @Value("${seckill.order.batch-size:100}")
+    private int batchSize;
+    @Value("${server.port:8080}")
+    private int serverPort;
+
+    @Resource
+    private SeckillShardRouter seckillShardRouter;
+    @Resource
+    private SoldOutRegistry soldOutRegistry;
+    @Resource
+    private SeckillStock seckillStock;
 
     // 异步处理线程池
-    private static final ExecutorService SECKILL_ORDER_EXECUTOR = Executors.newSingleThreadExecutor();
-    private IVoucherOrderService proxy;
+    private ExecutorService seckillOrderExecutor;
+
+    private final String consumerGroupKey = SECKILL_ORDER_GROUP;
+
+    /**
+     * 所有需要消费的分片 stream
+     */
+    private List<String> streamKeys;
 
-    private final String streamKey = "stream.orders";
-    private final String consumerGroupKey = "g1";
+    private Counter processedCounter;
+    private Counter deadLetterCounter;
+    private Timer batchTimer;
 
     // 在类初始化之后执行，因为当这个类初始化好了之后，随时都是有可能要执行的
     @PostConstruct
     private void init() {
-        createStreamConsumerGroup();
-        SECKILL_ORDER_EXECUTOR.submit(new VoucherOrderHandler());
+        streamKeys = seckillShardRouter.activeShards().stream()
+                .map(SeckillShardRouter::streamKey)
+                .collect(Collectors.toList());
+        streamKeys.forEach(this::createStreamConsumerGroup);
+        createStreamConsumerGroup(SECKILL_ORDER_STREAM);
+        processedCounter = Counter.builder("seckill.order.processed").register(meterRegistry);
+        deadLetterCounter = Counter.builder("seckill.order.dead-letter").register(meterRegistry);
+        batchTimer = Timer.builder("seckill.order.batch").register(meterRegistry);
+        Gauge.builder("seckill.order.pending", this, VoucherOrderServiceImpl::pendingCount).register(meterRegistry);
+        Gauge.builder("seckill.order.lag", this, VoucherOrderServiceImpl::lag).register(meterRegistry);
+        // 消费者名称：主机名:端口-线程序号，同一节点重启后名称不变，可继续处理自己的 pending 消息
+        String consumerPrefix = NetUtil.getLocalHostName() + ":" + serverPort + "-c";
+        // 分配分片：消费者多于分片时多个消费者共同消费一个分片，少于分片时一个消费者轮询多个分片
+        List<List<String>> assignments = new ArrayList<>(consumerCount);
+        for (int i = 0; i < consumerCount; i++) {
+            assignments.add(new ArrayList<>());
+        }
+        if (consumerCount >= streamKeys.size()) {
+            for (int i = 0; i < consumerCount; i++) {
+                assignments.get(i).add(streamKeys.get(i % streamKeys.size()));
+            }
+        } else {
+            for (int i = 0; i < streamKeys.size(); i++) {
+                assignments.get(i % consumerCount).add(streamKeys.get(i));
+            }
+        }
+        seckillOrderExecutor = Executors.newFixedThreadPool(consumerCount + 1);
+        for (int i = 0; i < consumerCount; i++) {
+            // 0 号消费者同时负责认领已下线消费者的 pending 消息
+            seckillOrderExecutor.submit(new VoucherOrderHandler(consumerPrefix + i, assignments.get(i), i == 0));
+        }
+        // 分片之前的单一 stream 不再有新消息，处理完剩余消息后退出
+        seckillOrderExecutor.submit(new LegacyStreamDrainer(consumerPrefix + "legacy"));
+    }
+
+    @PreDestroy
+    private void shutdown() {
+        seckillOrderExecutor.shutdownNow();
     }
 
-    private void createStreamConsumerGroup() {
+    private void createStreamConsumerGroup(String streamKey) {
         try {
             stringRedisTemplate.opsForStream().createGroup(streamKey, ReadOffset.from("0"), consumerGroupKey);
-            log.info("消费者组 {} 创建成功", consumerGroupKey);
+            log.info("消费者组 {} 创建成功, stream = {}", consumerGroupKey, streamKey);
         } catch (Exception e) {
-            log.info("消费者组 {} 已经存在", consumerGroupKey);
+            log.info("消费者组 {} 已经存在, stream = {}", consumerGroupKey, streamKey);
         }
     }
 
     private class VoucherOrderHandler implements Runnable {
 
+        private final String consumerName;
+
+        private final List<String> assignedStreams;
+
+        private final boolean claimer;
+
+        private long lastClaimTime = 0;
+
+        private VoucherOrderHandler(String consumerName, List<String> assignedStreams, boolean claimer) {
+            this.consumerName = consumerName;
+            this.assignedStreams = assignedStreams;
+            this.claimer = claimer;
+        }
+
         @Override
         public void run() {
-            while (true) {
+            // 启动时先处理上次未确认的消息
+            assignedStreams.forEach(streamKey -> handlePendingList(consumerName, streamKey));
+            // 只负责一个分片时阻塞读取，负责多个分片时轮询
+            boolean single = assignedStreams.size() == 1;
+            while (!Thread.currentThread().isInterrupted()) {
+                String current = null;
                 try {
-                    // 1. 获取消息队列中的订单信息 XREADGROUP GROUP g1 c1 COUNT 1 BLOCK 2000 STREAMS s1 >
-                    List<MapRecord<String, Object, Object>> list = stringRedisTemplate.opsForStream().read(
-                            Consumer.from(consumerGroupKey, "c1"),
-                            StreamReadOptions.empty().count(1).block(Duration.ofSeconds(2)),
-                            StreamOffset.create(streamKey, ReadOffset.lastConsumed())
-                    );
-                    // 2. 判断订单信息是否为空
-                    if (list == null || list.isEmpty()) {
-                        continue;
+                    if (claimer) {
+                        reclaimIdle();
+                    }
+                    int received = 0;
+                    for (String streamKey : assignedStreams) {
+                        current = streamKey;
+                        // 1. 获取消息队列中的订单信息 XREADGROUP GROUP g1 consumer COUNT batchSize BLOCK 2000 STREAMS streamKey >
+                        StreamReadOptions options = StreamReadOptions.empty().count(batchSize);
+                        List<MapRecord<String, Object, Object>> list = stringRedisTemplate.opsForStream().read(
+                                Consumer.from(consumerGroupKey, consumerName),
+                                single ? options.block(Duration.ofSeconds(2)) : options,
+                                StreamOffset.create(streamKey, ReadOffset.lastConsumed())
+                        );
+                        // 2. 判断订单信息是否为空
+                        if (list == null || list.isEmpty()) {
+                            continue;
+                        }
+                        // 3. 一批订单一个事务落库，并一次确认；有消息未确认时立即处理 pending list
+                        if (!handleRecords(streamKey, list)) {
+                            handlePendingList(consumerName, streamKey);
+                        }
+                        received += list.size();
+                    }
+                    if (!single && received == 0) {
+                        Thread.sleep(SECKILL_ORDER_POLL_MILLIS);
                     }
-                    // 解析数据
-                    MapRecord<String, Object, Object> record = list.get(0);
-                    Map<Object, Object> value = record.getValue();
-                    VoucherOrder voucherOrder = BeanUtil.fillBeanWithMap(value, new VoucherOrder(), true);
-                    // 3. 创建订单
-                    createVoucherOrder(voucherOrder);
-                    // 4. 确认消息 XACK
-                    stringRedisTemplate.opsForStream().acknowledge(streamKey, consumerGroupKey, record.getId());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
                 } catch (Exception e) {
                     log.error("处理订单异常", e);
-                    handlePendingList();
+                    if (current != null) {
+                        handlePendingList(consumerName, current);
+                    }
                 }
             }
         }
 
-        private void handlePendingList() {
-            while (true) {
+        /**
+         * 认领其他消费者（如已下线的节点）长时间未确认的消息，认领后立即处理
+         */
+        private void reclaimIdle() {
+            long now = System.currentTimeMillis();
+            if (now - lastClaimTime < SECKILL_ORDER_CLAIM_INTERVAL_MILLIS) {
+                return;
+            }
+            lastClaimTime = now;
+            for (String streamKey : streamKeys) {
+                if (claimIdlePending(consumerName, streamKey) > 0) {
+                    handlePendingList(consumerName, streamKey);
+                }
+            }
+        }
+    }
+
+    /**
+     * 分片之前的单一 stream：处理完 pending 与未投递的消息后退出
+     */
+    private class LegacyStreamDrainer implements Runnable {
+
+        private final String consumerName;
+
+        private LegacyStreamDrainer(String consumerName) {
+            this.consumerName = consumerName;
+        }
+
+        @Override
+        public void run() {
+            while (!Thread.currentThread().isInterrupted()) {
                 try {
-                    // 1. 获取 pending list 中的订单信息 XREADGROUP GROUP g1 c1 COUNT 1 BLOCK 2000 STREAMS s1 0
+                    handlePendingList(consumerName, SECKILL_ORDER_STREAM);
+                    claimIdlePending(consumerName, SECKILL_ORDER_STREAM);
+                    handlePendingList(consumerName, SECKILL_ORDER_STREAM);
                     List<MapRecord<String, Object, Object>> list = stringRedisTemplate.opsForStream().read(
-                            Consumer.from(consumerGroupKey, "c1"),
-                            StreamReadOptions.empty().count(1),
-                            StreamOffset.create(streamKey, ReadOffset.from("0"))
+                            Consumer.from(consumerGroupKey, consumerName),
+                            StreamReadOptions.empty().count(batchSize),
+                            StreamOffset.create(SECKILL_ORDER_STREAM, ReadOffset.lastConsumed())
                     );
-                    // 2. 判断订单信息是否为空
-                    if (list == null || list.isEmpty()) {
-                        break;
+                    if (list != null && !list.isEmpty()) {
+                        handleRecords(SECKILL_ORDER_STREAM, list);
+                        continue;
                     }
-                    // 解析数据
-                    MapRecord<String, Object, Object> record = list.get(0);
-                    Map<Object, Object> value = record.getValue();
-                    VoucherOrder voucherOrder = BeanUtil.fillBeanWithMap(value, new VoucherOrder(), true);
-                    // 3. 创建订单
-                    createVoucherOrder(voucherOrder);
-                    // 4. 确认消息 ACK
-                    stringRedisTemplate.opsForStream().acknowledge(streamKey, consumerGroupKey, record.getId());
-                } catch (Exception e) {
-                    log.error("处理pending订单异常", e);
-                    try {
-                        Thread.sleep(50);
-                    } catch (InterruptedException ie) {
-                        ie.printStackTrace();
+                    if (pendingCount(SECKILL_ORDER_STREAM) == 0) {
+                        return;
                     }
+                    // 还有其他消费者未确认的消息，等待其超时后认领
+                    Thread.sleep(SECKILL_ORDER_CLAIM_INTERVAL_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception e) {
+                    log.error("处理分片前的订单消息异常", e);
+                    return;
+                }
+            }
+        }
+    }
+
+    private void handlePendingList(String consumerName, String streamKey) {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                // 1. 获取 pending list 中的订单信息 XREADGROUP GROUP g1 consumer COUNT batchSize STREAMS streamKey 0
+                List<MapRecord<String, Object, Object>> list = stringRedisTemplate.opsForStream().read(
+                        Consumer.from(consumerGroupKey, consumerName),
+                        StreamReadOptions.empty().count(batchSize),
+                        StreamOffset.create(streamKey, ReadOffset.from("0"))
+                );
+                // 2. 判断订单信息是否为空
+                if (list == null || list.isEmpty()) {
+                    break;
+                }
+                // 3. 创建订单并确认，仍有失败的消息时稍后重试（每次读取都会增加投递次数）
+                if (!handleRecords(streamKey, list)) {
+                    Thread.sleep(50);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.error("处理pending订单异常", e);
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * 把其他消费者超时未确认的消息转移给 consumerName
+     * @return 认领的消息数
+     */
+    private int claimIdlePending(String consumerName, String streamKey) {
+        PendingMessages pending = stringRedisTemplate.opsForStream()
+                .pending(streamKey, consumerGroupKey, Range.unbounded(), batchSize);
+        RecordId[] idle = pending.stream()
+                .filter(message -> !consumerName.equals(message.getConsumerName()))
+                .filter(message -> message.getElapsedTimeSinceLastDelivery().toMillis() >= SECKILL_ORDER_CLAIM_IDLE_MILLIS)
+                .map(PendingMessage::getId)
+                .toArray(RecordId[]::new);
+        if (idle.length == 0) {
+            return 0;
+        }
+        stringRedisTemplate.execute((RedisCallback<Object>) connection -> ((StringRedisConnection) connection)
+                .xClaimJustId(streamKey, consumerGroupKey, consumerName,
+                        RedisStreamCommands.XClaimOptions.minIdleMs(SECKILL_ORDER_CLAIM_IDLE_MILLIS).ids(idle)));
+        log.info("消费者 {} 认领了 {} 条超时未确认的订单消息, stream = {}", consumerName, idle.length, streamKey);
+        return idle.length;
+    }
+
+    /**
+     * 解析一批消息，在一个事务中创建订单，成功后一次 XACK 确认所有消息
+     * 整批失败时逐条重试，不让一条异常消息阻塞同批的其他订单
+     * @return 是否全部确认，未确认的消息留在 pending list 中等待重试
+     */
+    private boolean handleRecords(String streamKey, List<MapRecord<String, Object, Object>> list) {
+        try {
+            List<VoucherOrder> orders = list.stream().map(this::toOrder).collect(Collectors.toList());
+            batchTimer.record(() -> proxy.createVoucherOrders(orders));
+        } catch (Exception e) {
+            log.error("批量创建订单失败，逐条重试, stream = {}", streamKey, e);
+            return handleRecordsOneByOne(streamKey, list);
+        }
+        stringRedisTemplate.opsForStream().acknowledge(streamKey, consumerGroupKey,
+                list.stream().map(MapRecord::getId).toArray(RecordId[]::new));
+        processedCounter.increment(list.size());
+        return true;
+    }
+
+    /**
+     * 逐条创建订单，每条一个事务；失败的消息投递次数达到 SECKILL_ORDER_MAX_DELIVERIES 后转入死信 stream 并确认
+     * @return 是否全部确认
+     */
+    private boolean handleRecordsOneByOne(String streamKey, List<MapRecord<String, Object, Object>> list) {
+        boolean allAcked = true;
+        for (MapRecord<String, Object, Object> record : list) {
+            try {
+                proxy.createVoucherOrders(Collections.singletonList(toOrder(record)));
+                stringRedisTemplate.opsForStream().acknowledge(streamKey, consumerGroupKey, record.getId());
+                processedCounter.increment();
+            } catch (Exception e) {
+                long deliveries = deliveryCount(streamKey, record.getId());
+                if (deliveries >= SECKILL_ORDER_MAX_DELIVERIES) {
+                    deadLetter(streamKey, record, e);
+                } else {
+                    log.error("创建订单失败，第 {} 次投递, stream = {}, id = {}", deliveries, streamKey, record.getId(), e);
+                    allAcked = false;
                 }
             }
         }
+        return allAcked;
+    }
+
+    private VoucherOrder toOrder(MapRecord<String, Object, Object> record) {
+        return BeanUtil.fillBeanWithMap(record.getValue(), new VoucherOrder(), true);
+    }
+
+    /**
+     * 消息的投递次数（XPENDING），已不在 pending list 中时返回 0
+     */
+    private long deliveryCount(String streamKey, RecordId id) {
+        PendingMessages pending = stringRedisTemplate.opsForStream()
+                .pending(streamKey, consumerGroupKey, Range.closed(id.getValue(), id.getValue()), 1);
+        return pending.isEmpty() ? 0 : pending.get(0).getTotalDeliveryCount();
+    }
+
+    /**
+     * 转入死信 stream（与原 stream 同一 hash tag），附带原消息 id 与异常信息，然后确认原消息
+     */
+    private void deadLetter(String streamKey, MapRecord<String, Object, Object> record, Exception e) {
+        Map<String, String> value = new HashMap<>();
+        record.getValue().forEach((k, v) -> value.put(k.toString(), String.valueOf(v)));
+        value.put("sourceId", record.getId().getValue());
+        value.put("error", String.valueOf(e.getMessage()));
+        stringRedisTemplate.opsForStream().add(
+                StreamRecords.newRecord().in(streamKey + SECKILL_ORDER_DEAD_LETTER_SUFFIX).ofMap(value));
+        stringRedisTemplate.opsForStream().acknowledge(streamKey, consumerGroupKey, record.getId());
+        deadLetterCounter.increment();
+        log.error("订单消息投递 {} 次仍失败，转入死信 stream, stream = {}, id = {}",
+                SECKILL_ORDER_MAX_DELIVERIES, streamKey, record.getId(), e);
+    }
+
+    /**
+     * 所有分片已投递但未确认的消息数
+     */
+    private double pendingCount() {
+        return streamKeys.stream().mapToLong(this::pendingCount).sum();
+    }
+
+    private long pendingCount(String streamKey) {
+        PendingMessagesSummary summary = stringRedisTemplate.opsForStream().pending(streamKey, consumerGroupKey);
+        return summary == null ? 0 : summary.getTotalPendingMessages();
+    }
+
+    /**
+     * 所有分片尚未投递给任何消费者的消息数，每个分片最多统计 SECKILL_ORDER_LAG_SCAN_LIMIT 条
+     */
+    private double lag() {
+        long lag = 0;
+        for (String streamKey : streamKeys) {
+            StreamInfo.XInfoGroups groups = stringRedisTemplate.opsForStream().groups(streamKey);
+            String lastDeliveredId = groups.stream()
+                    .filter(group -> consumerGroupKey.equals(group.groupName()))
+                    .map(StreamInfo.XInfoGroup::lastDeliveredId)
+                    .findFirst().orElse("0-0");
+            List<MapRecord<String, Object, Object>> undelivered = stringRedisTemplate.opsForStream().range(streamKey,
+                    Range.rightUnbounded(Range.Bound.exclusive(lastDeliveredId)),
+                    RedisZSetCommands.Limit.limit().count(SECKILL_ORDER_LAG_SCAN_LIMIT));
+            lag += undelivered == null ? 0 : undelivered.size();
+        }
+        return lag;
     }
 
 //    private BlockingQueue<VoucherOrder> orderTasks = new ArrayBlockingQueue<>(1024 * 1024);
@@ -182,22 +479,26 @@ public class VoucherOrderServiceImpl extends ServiceImpl<VoucherOrderMapper, Vou
      * @return
      */
     public Result seckillVoucher(Long voucherId) {
+        // 已售罄的券直接拒绝，不访问 Redis
+        if (soldOutRegistry.isSoldOut(voucherId)) {
+            return Result.fail("库存不足");
+        }
+        // 执行脚本前记下补充库存的版本，售罄标记只对这个版本之前的库存有效
+        long restockVersion = soldOutRegistry.restockVersion(voucherId);
         // 获取用户
         Long userId = UserHolder.getUser().getId();
         // 获取订单
         long orderId = redisIdWorker.nextId("order");
 
-        // 1. 执行 lua 脚本
-        Long result = stringRedisTemplate.execute(
-                SECKILL_SCRIPT,
-                Collections.emptyList(),
-                voucherId.toString(), userId.toString(), String.valueOf(orderId)
-        );
-        int r = result.intValue();
+        // 1. 执行 lua 脚本（分段库存的券可能依次尝试多个段）
+        int r = seckillStock.purchase(voucherId, userId, orderId);
         // 2. 判断是否为 0 （有购买资格）
-        if (r != 0) {
-            // 2.1. 不为0，没有购买资格
-            return Result.fail(r == 1 ? "库存不足" : "不能重复下单");
+        if (r != SeckillStock.OK) {
+            // 2.1. 不为0，没有购买资格；库存不足时标记售罄并通知所有节点
+            if (r == SeckillStock.SOLD_OUT) {
+                soldOutRegistry.markSoldOut(voucherId, restockVersion);
+            }
+            return Result.fail(r == SeckillStock.SOLD_OUT ? "库存不足" : "不能重复下单");
         }
         /*// 保存到阻塞队列
         VoucherOrder voucherOrder = new VoucherOrder();
@@ -208,9 +509,7 @@ public class VoucherOrderServiceImpl extends ServiceImpl<VoucherOrderMapper, Vou
         // 2.3. 放入阻塞队列
         orderTasks.add(voucherOrder);*/
 
-        // 3. 获取代理对象
-        proxy = (IVoucherOrderService) AopContext.currentProxy();
-        // 4. 返回订单 id
+        // 3. 返回订单 id
         return Result.ok(orderId);
     }
 
@@ -245,6 +544,58 @@ public class VoucherOrderServiceImpl extends ServiceImpl<VoucherOrderMapper, Vou
         save(voucherOrder);
     }
 
+    /**
+     * 批量创建优惠券订单，一批订单在一个事务中完成
+     * 同一张券的库存合并为一次扣减，订单批量插入；重复投递的消息（订单已存在）会被跳过
+     * @param voucherOrders 优惠券订单
+     */
+    @Transactional
+    public void createVoucherOrders(List<VoucherOrder> voucherOrders) {
+        // 1. 一人一单：跳过数据库中已存在的和同一批次内重复的订单
+        Set<Long> userIds = voucherOrders.stream().map(VoucherOrder::getUserId).collect(Collectors.toSet());
+        Set<Long> voucherIds = voucherOrders.stream().map(VoucherOrder::getVoucherId).collect(Collectors.toSet());
+        Set<String> bought = query().select("user_id", "voucher_id")
+                .in("user_id", userIds)
+                .in("voucher_id", voucherIds)
+                .list()
+                .stream().map(order -> order.getUserId() + ":" + order.getVoucherId())
+                .collect(Collectors.toCollection(HashSet::new));
+        Map<Long, List<VoucherOrder>> ordersByVoucher = new HashMap<>();
+        for (VoucherOrder order : voucherOrders) {
+            if (!bought.add(order.getUserId() + ":" + order.getVoucherId())) {
+                log.error("用户已经购买过了, userId = {}, voucherId = {}", order.getUserId(), order.getVoucherId());
+                continue;
+            }
+            ordersByVoucher.computeIfAbsent(order.getVoucherId(), id -> new ArrayList<>()).add(order);
+        }
+        // 2. 按券合并扣减库存，库存不足以扣减整组时（正常情况下 Redis 已校验过库存）逐个扣减
+        List<VoucherOrder> toSave = new ArrayList<>(voucherOrders.size());
+        ordersByVoucher.forEach((voucherId, orders) -> {
+            boolean updated = seckillVoucherService.update()
+                    .setSql("stock = stock - " + orders.size())
+                    .eq("voucher_id", voucherId)
+                    .ge("stock", orders.size())
+                    .update();
+            if (updated) {
+                toSave.addAll(orders);
+                return;
+            }
+            for (VoucherOrder order : orders) {
+                if (seckillVoucherService.update()
+                        .setSql("stock = stock - 1")
+                        .eq("voucher_id", voucherId)
+                        .gt("stock", 0)
+                        .update()) {
+                    toSave.add(order);
+                } else {
+                    log.error("库存不足, orderId = {}", order.getId());
+                }
+            }
+        });
+        // 3. 批量插入订单
+        saveBatch(toSave);
+    }
+
     /**
      * 优惠券秒杀
      * @param voucherId
@@ -7,14 +7,19 @@ import com.review.mapper.VoucherMapper;
 import com.review.entity.SeckillVoucher;
 import com.review.service.ISeckillVoucherService;
 import com.review.service.IVoucherService;
-import org.springframework.data.redis.core.StringRedisTemplate;
+import com.review.utils.CacheClient;
+import com.review.utils.CacheStrategy;
+import com.review.utils.Cached;
+import com.review.utils.SeckillStock;
+import com.review.utils.SoldOutRegistry;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.Resource;
 import java.util.List;
 
-import static com.review.utils.RedisConstants.SECKILL_STOCK_KEY;
+import static com.review.utils.RedisConstants.CACHE_VOUCHER_KEY;
 
 
 @Service
@@ -23,16 +28,46 @@ public class VoucherServiceImpl extends ServiceImpl<VoucherMapper, Voucher> impl
     @Resource
     private ISeckillVoucherService seckillVoucherService;
     @Resource
-    private StringRedisTemplate stringRedisTemplate;
+    private SeckillStock seckillStock;
+    @Resource
+    private SoldOutRegistry soldOutRegistry;
+
+    @Resource
+    private CacheClient cacheClient;
+
+    /**
+     * 代理对象，内部调用通过它走缓存与事务
+     */
+    @Lazy
+    @Resource
+    private IVoucherService proxy;
 
     @Override
     public Result queryVoucherOfShop(Long shopId) {
-        // 查询优惠券信息
-        List<Voucher> vouchers = getBaseMapper().queryVoucherOfShop(shopId);
+        // 查询优惠券信息（经代理走 voucher 缓存区域）
+        List<Voucher> vouchers = proxy.queryVouchersOfShop(shopId);
         // 返回结果
         return Result.ok(vouchers);
     }
 
+    /**
+     * 查询店铺的优惠券列表（voucher 缓存区域）
+     * @param shopId 店铺id
+     * @return 优惠券列表
+     */
+    @Override
+    @Cached(region = "voucher", strategy = CacheStrategy.MUTEX)
+    public List<Voucher> queryVouchersOfShop(Long shopId) {
+        return getBaseMapper().queryVoucherOfShop(shopId);
+    }
+
+    @Override
+    public void addVoucher(Voucher voucher) {
+        save(voucher);
+        // 删除店铺优惠券列表缓存
+        cacheClient.delete(CACHE_VOUCHER_KEY + voucher.getShopId());
+    }
+
     @Override
     @Transactional
     public void addSeckillVoucher(Voucher voucher) {
@@ -46,7 +81,37 @@ public class VoucherServiceImpl extends ServiceImpl<VoucherMapper, Voucher> impl
         seckillVoucher.setEndTime(voucher.getEndTime());
         seckillVoucherService.save(seckillVoucher);
 
-        // 保存到 Redis 中
-        stringRedisTemplate.opsForValue().set(SECKILL_STOCK_KEY + voucher.getId(), seckillVoucher.getStock().toString());
+        // 保存到 Redis 中（券所在分片，开启分段时拆分到多个分片）
+        seckillStock.init(voucher.getId(), seckillVoucher.getStock());
+        // 删除店铺优惠券列表缓存
+        cacheClient.delete(CACHE_VOUCHER_KEY + voucher.getShopId());
+    }
+
+    /**
+     * 补充秒杀券库存：数据库与 Redis 同时增加，清除各节点的售罄标记与店铺优惠券列表缓存
+     * @param voucherId 优惠券id
+     * @param amount 增加的库存
+     */
+    @Override
+    @Transactional
+    public Result addSeckillStock(Long voucherId, Integer amount) {
+        if (amount == null || amount <= 0) {
+            return Result.fail("库存数量必须大于0");
+        }
+        boolean updated = seckillVoucherService.update()
+                .setSql("stock = stock + " + amount)
+                .eq("voucher_id", voucherId)
+                .update();
+        if (!updated) {
+            return Result.fail("秒杀券不存在");
+        }
+        seckillStock.add(voucherId, amount);
+        soldOutRegistry.clear(voucherId);
+        // 删除店铺优惠券列表缓存，列表中包含秒杀券的库存
+        Voucher voucher = getById(voucherId);
+        if (voucher != null) {
+            cacheClient.delete(CACHE_VOUCHER_KEY + voucher.getShopId());
+        }
+        return Result.ok();
     }
 }
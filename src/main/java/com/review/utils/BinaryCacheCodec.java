@@ -0,0 +1,273 @@
+package com.review.utils;
+
+import cn.hutool.core.util.TypeUtil;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 紧凑二进制序列化
+ * 格式：魔数(1) 版本(1) 类型(1) [逻辑过期时间(8) 重建耗时(8)] 字段结构哈希(4) 字段...
+ * 版本 1 的逻辑过期格式没有重建耗时，读取时兼容
+ * 只支持字段为基本类型及其包装类、String、LocalDateTime 的扁平对象，其他对象回退为 JSON 编码
+ */
+public class BinaryCacheCodec implements CacheCodec {
+
+    public static final BinaryCacheCodec INSTANCE = new BinaryCacheCodec();
+
+    /**
+     * 魔数，JSON 文本不会以控制字符开头，读取时据此区分格式
+     */
+    public static final byte MAGIC = 0x01;
+    private static final byte VERSION = 2;
+    private static final byte VERSION_WITHOUT_REBUILD_COST = 1;
+    private static final byte KIND_VALUE = 0;
+    private static final byte KIND_LOGICAL = 1;
+    private static final int HEADER_LENGTH = 3;
+
+    private static final byte T_STRING = 1;
+    private static final byte T_LONG = 2;
+    private static final byte T_INT = 3;
+    private static final byte T_DOUBLE = 4;
+    private static final byte T_BOOLEAN = 5;
+    private static final byte T_DATE_TIME = 6;
+
+    private static final Schema UNSUPPORTED = new Schema(null, null, null, 0);
+
+    private final Map<Class<?>, Schema> schemas = new ConcurrentHashMap<>();
+
+    @Override
+    public byte[] encode(Object value) {
+        Schema schema = schemaOf(value.getClass());
+        if (schema == UNSUPPORTED) {
+            return JsonCacheCodec.INSTANCE.encode(value);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeByte(MAGIC);
+            out.writeByte(VERSION);
+            out.writeByte(KIND_VALUE);
+            writeFields(out, schema, value);
+        } catch (IOException | IllegalAccessException e) {
+            throw new IllegalStateException("缓存编码失败: " + value.getClass(), e);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public <R> R decode(byte[] bytes, Type type) {
+        checkHeader(bytes, KIND_VALUE);
+        return readFields(ByteBuffer.wrap(bytes, HEADER_LENGTH, bytes.length - HEADER_LENGTH), type);
+    }
+
+    @Override
+    public byte[] encodeLogical(Object value, long expireAt, long rebuildCost) {
+        Schema schema = schemaOf(value.getClass());
+        if (schema == UNSUPPORTED) {
+            return JsonCacheCodec.INSTANCE.encodeLogical(value, expireAt, rebuildCost);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeByte(MAGIC);
+            out.writeByte(VERSION);
+            out.writeByte(KIND_LOGICAL);
+            out.writeLong(expireAt);
+            out.writeLong(rebuildCost);
+            writeFields(out, schema, value);
+        } catch (IOException | IllegalAccessException e) {
+            throw new IllegalStateException("缓存编码失败: " + value.getClass(), e);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public CacheEnvelope decodeLogical(byte[] bytes) {
+        checkHeader(bytes, KIND_LOGICAL);
+        // 过期时间、重建耗时位于固定偏移，无需解析数据
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long expireAt = buffer.getLong(HEADER_LENGTH);
+        boolean hasRebuildCost = bytes[1] != VERSION_WITHOUT_REBUILD_COST;
+        long rebuildCost = hasRebuildCost ? buffer.getLong(HEADER_LENGTH + Long.BYTES) : 0L;
+        int offset = HEADER_LENGTH + (hasRebuildCost ? 2 : 1) * Long.BYTES;
+        return new CacheEnvelope(expireAt, rebuildCost,
+                type -> readFields(ByteBuffer.wrap(bytes, offset, bytes.length - offset), type));
+    }
+
+    private void checkHeader(byte[] bytes, byte kind) {
+        if (bytes.length < HEADER_LENGTH || bytes[0] != MAGIC
+                || (bytes[1] != VERSION && bytes[1] != VERSION_WITHOUT_REBUILD_COST) || bytes[2] != kind) {
+            throw new IllegalStateException("不支持的缓存格式版本");
+        }
+    }
+
+    private void writeFields(DataOutputStream out, Schema schema, Object value) throws IOException, IllegalAccessException {
+        out.writeInt(schema.hash);
+        for (int i = 0; i < schema.fields.length; i++) {
+            Object fieldValue = schema.fields[i].get(value);
+            if (fieldValue == null) {
+                out.writeByte(0);
+                continue;
+            }
+            out.writeByte(1);
+            switch (schema.types[i]) {
+                case T_STRING:
+                    byte[] str = ((String) fieldValue).getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(str.length);
+                    out.write(str);
+                    break;
+                case T_LONG:
+                    out.writeLong((Long) fieldValue);
+                    break;
+                case T_INT:
+                    out.writeInt((Integer) fieldValue);
+                    break;
+                case T_DOUBLE:
+                    out.writeDouble((Double) fieldValue);
+                    break;
+                case T_BOOLEAN:
+                    out.writeBoolean((Boolean) fieldValue);
+                    break;
+                default:
+                    LocalDateTime time = (LocalDateTime) fieldValue;
+                    out.writeLong(time.toEpochSecond(ZoneOffset.UTC));
+                    out.writeInt(time.getNano());
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <R> R readFields(ByteBuffer in, Type type) {
+        Schema schema = schemaOf(TypeUtil.getClass(type));
+        if (schema == UNSUPPORTED || in.getInt() != schema.hash) {
+            // 类结构已变化（滚动发布期间新旧版本并存），按未命中处理
+            throw new IllegalStateException("缓存字段结构不匹配: " + type);
+        }
+        try {
+            Object value = schema.constructor.newInstance();
+            for (int i = 0; i < schema.fields.length; i++) {
+                if (in.get() == 0) {
+                    continue;
+                }
+                Object fieldValue;
+                switch (schema.types[i]) {
+                    case T_STRING:
+                        byte[] str = new byte[in.getInt()];
+                        in.get(str);
+                        fieldValue = new String(str, StandardCharsets.UTF_8);
+                        break;
+                    case T_LONG:
+                        fieldValue = in.getLong();
+                        break;
+                    case T_INT:
+                        fieldValue = in.getInt();
+                        break;
+                    case T_DOUBLE:
+                        fieldValue = in.getDouble();
+                        break;
+                    case T_BOOLEAN:
+                        fieldValue = in.get() != 0;
+                        break;
+                    default:
+                        fieldValue = LocalDateTime.ofEpochSecond(in.getLong(), in.getInt(), ZoneOffset.UTC);
+                }
+                schema.fields[i].set(value, fieldValue);
+            }
+            return (R) value;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("缓存解码失败: " + type, e);
+        }
+    }
+
+    private Schema schemaOf(Class<?> clazz) {
+        return schemas.computeIfAbsent(clazz, BinaryCacheCodec::buildSchema);
+    }
+
+    /**
+     * 按字段名排序生成字段结构，出现不支持的字段类型时返回 UNSUPPORTED
+     */
+    private static Schema buildSchema(Class<?> clazz) {
+        if (clazz == null || clazz.isInterface() || clazz.isArray() || clazz.getName().startsWith("java.")) {
+            return UNSUPPORTED;
+        }
+        List<Field> fields = new ArrayList<>();
+        for (Class<?> c = clazz; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)) {
+                    fields.add(field);
+                }
+            }
+        }
+        fields.sort(Comparator.comparing(Field::getName));
+        byte[] types = new byte[fields.size()];
+        StringBuilder signature = new StringBuilder();
+        for (int i = 0; i < fields.size(); i++) {
+            Field field = fields.get(i);
+            types[i] = typeCodeOf(field.getType());
+            if (types[i] == 0) {
+                return UNSUPPORTED;
+            }
+            field.setAccessible(true);
+            signature.append(field.getName()).append(':').append(types[i]).append(';');
+        }
+        try {
+            Constructor<?> constructor = clazz.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return new Schema(constructor, fields.toArray(new Field[0]), types, signature.toString().hashCode());
+        } catch (NoSuchMethodException e) {
+            return UNSUPPORTED;
+        }
+    }
+
+    private static byte typeCodeOf(Class<?> type) {
+        if (type == String.class) {
+            return T_STRING;
+        }
+        if (type == Long.class || type == long.class) {
+            return T_LONG;
+        }
+        if (type == Integer.class || type == int.class) {
+            return T_INT;
+        }
+        if (type == Double.class || type == double.class) {
+            return T_DOUBLE;
+        }
+        if (type == Boolean.class || type == boolean.class) {
+            return T_BOOLEAN;
+        }
+        if (type == LocalDateTime.class) {
+            return T_DATE_TIME;
+        }
+        return 0;
+    }
+
+    private static class Schema {
+        private final Constructor<?> constructor;
+        private final Field[] fields;
+        private final byte[] types;
+        private final int hash;
+
+        private Schema(Constructor<?> constructor, Field[] fields, byte[] types, int hash) {
+            this.constructor = constructor;
+            this.fields = fields;
+            this.types = types;
+            this.hash = hash;
+        }
+    }
+}
@@ -0,0 +1,381 @@
+package com.review.utils;
+
+import cn.hutool.core.lang.hash.MurmurHash;
+import cn.hutool.core.util.BooleanUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import static com.review.utils.RedisConstants.*;
+
+/**
+ * 基于 Redis bitmap 的布隆过滤器，用于在查询缓存和数据库之前拦截不存在的 id（缓存穿透）
+ * 所有节点共享 Redis 中的 bitmap，可选在本地保留一份副本，通过 pub/sub 同步新增的 id
+ * 全量构建期间（bitmap 尚不存在）一律放行，避免误拦截；未收到构建完成的通知时，按固定间隔检查 bitmap 是否已存在
+ * 加载本地副本期间收到的新增 id 会暂存，替换副本后再补上，不会因替换丢失
+ */
+@Slf4j
+@Component
+public class BloomFilterGuard {
+
+    private static final DefaultRedisScript<Long> ADD_SCRIPT;
+    static {
+        ADD_SCRIPT = new DefaultRedisScript<>();
+        ADD_SCRIPT.setLocation(new ClassPathResource("bloom_add.lua"));
+        ADD_SCRIPT.setResultType(Long.class);
+    }
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final RedissonClient redissonClient;
+
+    private final boolean localCopyEnabled;
+
+    private final Map<String, Filter> filters = new ConcurrentHashMap<>();
+
+    private final ExecutorService BLOOM_REBUILD_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    public BloomFilterGuard(StringRedisTemplate stringRedisTemplate, RedissonClient redissonClient,
+                            @Value("${cache.bloom.local-copy:true}") boolean localCopyEnabled) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.redissonClient = redissonClient;
+        this.localCopyEnabled = localCopyEnabled;
+    }
+
+    /**
+     * 注册过滤器，Redis 中不存在时全量构建
+     * @param name 过滤器名称，一般为缓存 key 前缀
+     * @param expectedInsertions 预计元素个数
+     * @param fpp 期望误判率
+     * @param idPager 按主键分页读取 id：入参为上一页最大 id，返回下一页 id，为空表示读取完毕
+     */
+    public void register(String name, long expectedInsertions, double fpp, Function<Long, List<Long>> idPager) {
+        Filter filter = new Filter(name, expectedInsertions, fpp, idPager);
+        filters.put(name, filter);
+        if (BooleanUtil.isTrue(stringRedisTemplate.hasKey(filter.key))) {
+            filter.ready = true;
+            loadLocalCopy(filter);
+        } else {
+            // 其他节点正在构建时跳过，等待其完成后的通知，或在 mightContain 中发现 bitmap 已存在
+            rebuild(name);
+        }
+    }
+
+    public boolean isRegistered(String name) {
+        return filters.containsKey(name);
+    }
+
+    /**
+     * 判断 id 是否可能存在
+     * @return false 表示一定不存在；未注册或尚未构建完成的过滤器一律返回 true
+     */
+    public boolean mightContain(String name, Object id) {
+        Filter filter = filters.get(name);
+        if (filter == null || (!filter.ready && !checkReady(filter))) {
+            return true;
+        }
+        long[] offsets = filter.offsets(id);
+        BitArray localBits = filter.localBits;
+        boolean contains;
+        if (localBits != null) {
+            contains = localBits.getAll(offsets);
+        } else {
+            // 管道批量 GETBIT
+            List<Object> bits = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                for (long offset : offsets) {
+                    stringConnection.getBit(filter.key, offset);
+                }
+                return null;
+            });
+            contains = bits.stream().allMatch(Boolean.TRUE::equals);
+        }
+        if (contains) {
+            filter.positives.increment();
+        }
+        return contains;
+    }
+
+    /**
+     * 新增 id，写入 Redis 并通知其他节点更新本地副本
+     */
+    public void add(String name, Object id) {
+        Filter filter = filters.get(name);
+        if (filter == null) {
+            return;
+        }
+        long[] offsets = filter.offsets(id);
+        String[] args = Arrays.stream(offsets).mapToObj(String::valueOf).toArray(String[]::new);
+        stringRedisTemplate.execute(ADD_SCRIPT, Arrays.asList(filter.key, filter.rebuildKey), (Object[]) args);
+        if (localCopyEnabled) {
+            setLocal(filter, offsets);
+            stringRedisTemplate.convertAndSend(BLOOM_ADD_CHANNEL, name + "|" + id);
+        }
+    }
+
+    /**
+     * 记录一次误判（过滤器判断存在，但数据库中不存在），误判率明显偏高时异步重建
+     */
+    public void recordFalsePositive(String name) {
+        Filter filter = filters.get(name);
+        if (filter == null) {
+            return;
+        }
+        filter.falsePositives.increment();
+        long positives = filter.positives.sum();
+        if (positives >= BLOOM_DRIFT_MIN_SAMPLES
+                && filter.falsePositives.sum() > positives * filter.fpp * BLOOM_DRIFT_FACTOR
+                && !filter.rebuilding.get()) {
+            log.warn("布隆过滤器 {} 误判率偏高，开始异步重建", name);
+            BLOOM_REBUILD_EXECUTOR.submit(() -> rebuild(name));
+        }
+    }
+
+    /**
+     * 重建过滤器：写入影子 key，完成后 RENAME 原子替换
+     * 重建期间新增的 id 会同时写入影子 key（见 bloom_add.lua）
+     * 同一时刻集群内只有一个节点重建，拿不到锁的节点直接跳过
+     */
+    public void rebuild(String name) {
+        Filter filter = filters.get(name);
+        if (filter == null || !filter.rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        RLock lock = redissonClient.getLock(BLOOM_REBUILD_LOCK + name);
+        if (!lock.tryLock()) {
+            filter.rebuilding.set(false);
+            log.info("布隆过滤器 {} 正在由其他节点重建，跳过", name);
+            return;
+        }
+        try {
+            // 1. 创建影子 key，并预先分配 bitmap 大小
+            stringRedisTemplate.delete(filter.rebuildKey);
+            stringRedisTemplate.opsForValue().setBit(filter.rebuildKey, filter.numBits - 1, false);
+            // 2. 按主键分页读取 id，管道写入影子 key
+            long lastId = 0;
+            long count = 0;
+            while (true) {
+                List<Long> ids = filter.idPager.apply(lastId);
+                if (ids == null || ids.isEmpty()) {
+                    break;
+                }
+                stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                    for (Long id : ids) {
+                        for (long offset : filter.offsets(id)) {
+                            stringConnection.setBit(filter.rebuildKey, offset, true);
+                        }
+                    }
+                    return null;
+                });
+                lastId = ids.get(ids.size() - 1);
+                count += ids.size();
+            }
+            // 3. 原子替换
+            stringRedisTemplate.rename(filter.rebuildKey, filter.key);
+            filter.ready = true;
+            filter.positives.reset();
+            filter.falsePositives.reset();
+            // 4. 重新加载本地副本，并通知其他节点
+            loadLocalCopy(filter);
+            stringRedisTemplate.convertAndSend(BLOOM_RELOAD_CHANNEL, name);
+            log.info("布隆过滤器 {} 重建完成，共 {} 个元素", name, count);
+        } finally {
+            lock.unlock();
+            filter.rebuilding.set(false);
+        }
+    }
+
+    /**
+     * 其他节点新增 id 的通知，消息格式为 name|id
+     */
+    public void onRemoteAdd(String message) {
+        int idx = message.lastIndexOf('|');
+        Filter filter = filters.get(message.substring(0, idx));
+        if (filter != null && localCopyEnabled) {
+            setLocal(filter, filter.offsets(message.substring(idx + 1)));
+        }
+    }
+
+    /**
+     * 其他节点重建完成的通知
+     */
+    public void onRemoteReload(String name) {
+        Filter filter = filters.get(name);
+        if (filter != null) {
+            filter.ready = true;
+            loadLocalCopy(filter);
+        }
+    }
+
+    /**
+     * 构建完成的通知可能在监听器启动前发出，按固定间隔检查 bitmap 是否已存在，存在时异步加载本地副本
+     * 本地副本加载完成前通过 GETBIT 查询 Redis
+     * @return 是否已构建完成
+     */
+    private boolean checkReady(Filter filter) {
+        long now = System.currentTimeMillis();
+        long checkAt = filter.nextReadyCheckAt;
+        if (now < checkAt || filter.rebuilding.get()) {
+            return false;
+        }
+        filter.nextReadyCheckAt = now + BLOOM_READY_CHECK_INTERVAL_MILLIS;
+        if (!BooleanUtil.isTrue(stringRedisTemplate.hasKey(filter.key))) {
+            return false;
+        }
+        filter.ready = true;
+        BLOOM_REBUILD_EXECUTOR.submit(() -> loadLocalCopy(filter));
+        return true;
+    }
+
+    /**
+     * 写入本地副本；正在加载副本时先暂存，替换后补写到新副本
+     * 先暂存再读取副本：替换前写入的由补写覆盖，替换后写入的直接落在新副本上
+     */
+    private void setLocal(Filter filter, long[] offsets) {
+        if (filter.loading) {
+            filter.pendingAdds.add(offsets);
+        }
+        BitArray localBits = filter.localBits;
+        if (localBits != null) {
+            localBits.setAll(offsets);
+        }
+    }
+
+    /**
+     * 从 Redis 读取整个 bitmap 作为本地副本，加载期间的新增 id 在替换后补写
+     */
+    private void loadLocalCopy(Filter filter) {
+        if (!localCopyEnabled) {
+            return;
+        }
+        synchronized (filter) {
+            filter.loading = true;
+            try {
+                BitArray bits = readBitmap(filter);
+                filter.localBits = bits;
+            } finally {
+                filter.loading = false;
+            }
+            long[] offsets;
+            while ((offsets = filter.pendingAdds.poll()) != null) {
+                filter.localBits.setAll(offsets);
+            }
+        }
+    }
+
+    private BitArray readBitmap(Filter filter) {
+        byte[] bytes = stringRedisTemplate.execute((RedisCallback<byte[]>) connection ->
+                connection.get(filter.key.getBytes(StandardCharsets.UTF_8)));
+        BitArray bits = new BitArray(filter.numBits);
+        if (bytes != null) {
+            // Redis bitmap 中 offset 0 为第一个字节的最高位
+            for (int i = 0; i < bytes.length; i++) {
+                for (int j = 0; j < 8; j++) {
+                    if ((bytes[i] & (0x80 >>> j)) != 0) {
+                        bits.set((long) i * 8 + j);
+                    }
+                }
+            }
+        }
+        return bits;
+    }
+
+    private static class Filter {
+        private final String key;
+        private final String rebuildKey;
+        private final double fpp;
+        private final long numBits;
+        private final int numHashes;
+        private final Function<Long, List<Long>> idPager;
+        private final LongAdder positives = new LongAdder();
+        private final LongAdder falsePositives = new LongAdder();
+        private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+        /**
+         * Redis 中的 bitmap 已构建完成
+         */
+        private volatile boolean ready;
+        private volatile BitArray localBits;
+        /**
+         * 正在加载本地副本，期间的新增 id 暂存到 pendingAdds
+         */
+        private volatile boolean loading;
+        private final Queue<long[]> pendingAdds = new ConcurrentLinkedQueue<>();
+        /**
+         * 下一次检查 bitmap 是否已构建完成的时间
+         */
+        private volatile long nextReadyCheckAt;
+
+        private Filter(String name, long expectedInsertions, double fpp, Function<Long, List<Long>> idPager) {
+            // hash tag 保证 bitmap 与影子 key 在同一个 slot，脚本可同时操作
+            this.key = BLOOM_KEY_PREFIX + "{" + name + "}";
+            this.rebuildKey = key + ":rebuild";
+            this.fpp = fpp;
+            this.idPager = idPager;
+            // m = -n * ln(p) / (ln2)^2，k = m / n * ln2
+            this.numBits = Math.max(64, (long) (-expectedInsertions * Math.log(fpp) / (Math.log(2) * Math.log(2))));
+            this.numHashes = Math.max(1, (int) Math.round((double) numBits / expectedInsertions * Math.log(2)));
+        }
+
+        /**
+         * 双重哈希计算 k 个 bit 偏移量：h1 + i * h2
+         */
+        private long[] offsets(Object id) {
+            long[] hash = MurmurHash.hash128(id.toString());
+            long[] offsets = new long[numHashes];
+            for (int i = 0; i < numHashes; i++) {
+                offsets[i] = Math.floorMod(hash[0] + i * hash[1], numBits);
+            }
+            return offsets;
+        }
+    }
+
+    private static class BitArray {
+        private final AtomicLongArray words;
+
+        private BitArray(long numBits) {
+            this.words = new AtomicLongArray((int) ((numBits + 63) >>> 6));
+        }
+
+        private void set(long index) {
+            long mask = 1L << index;
+            words.accumulateAndGet((int) (index >>> 6), mask, (a, b) -> a | b);
+        }
+
+        private void setAll(long[] indexes) {
+            for (long index : indexes) {
+                set(index);
+            }
+        }
+
+        private boolean getAll(long[] indexes) {
+            for (long index : indexes) {
+                if ((words.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
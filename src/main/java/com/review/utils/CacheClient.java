@@ -1,170 +1,1067 @@
 package com.review.utils;
 
-import cn.hutool.core.util.StrUtil;
-import cn.hutool.json.JSONUtil;
+import cn.hutool.core.lang.UUID;
+import cn.hutool.core.util.BooleanUtil;
+import cn.hutool.core.util.TypeUtil;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.netty.util.internal.StringUtil;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.stereotype.Component;
 
-import java.time.LocalDateTime;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import javax.annotation.PreDestroy;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
-import static com.review.utils.RedisConstants.CACHE_NULL_TTL;
-import static com.review.utils.RedisConstants.LOCK_SHOP_KEY;
+import static com.review.utils.CacheMetrics.*;
+import static com.review.utils.RedisConstants.*;
 
 @Slf4j
 @Component
 public class CacheClient {
 
+    /**
+     * 节点标识，用于忽略本节点发出的缓存变更消息
+     */
+    private static final String NODE_ID = UUID.randomUUID().toString(true);
+
+    private static final byte[] EMPTY = new byte[0];
+
     private final StringRedisTemplate stringRedisTemplate;
 
-    private final ExecutorService CACHE_REBUILD_EXECUTOR = Executors.newFixedThreadPool(10);
+    /**
+     * 一级缓存（进程内），未开启时为 null
+     */
+    private final LocalCache localCache;
+
+    /**
+     * 热点 key 的本地副本，不受一级缓存开关与 LRU 淘汰影响，TTL 较短
+     */
+    private final LocalCache hotKeyCache = new LocalCache(HOT_KEY_MAX_SIZE, TimeUnit.SECONDS.toMillis(HOT_KEY_LOCAL_TTL));
+
+    /**
+     * 统计本节点的 key 访问频率，热点 key 自动提升到本地副本，冷却后降级
+     */
+    private final HotKeyDetector hotKeyDetector = new HotKeyDetector(
+            HOT_KEY_SKETCH_DEPTH, HOT_KEY_SKETCH_WIDTH, HOT_KEY_THRESHOLD,
+            TimeUnit.SECONDS.toMillis(HOT_KEY_WINDOW), HOT_KEY_MAX_SIZE, hotKeyCache::invalidate);
+
+    private final CacheStats cacheStats = new CacheStats();
+
+    private final SingleFlight singleFlight = new SingleFlight();
+
+    /**
+     * 等待其他节点重建缓存的信号，收到该 key 的变更通知时完成
+     */
+    private final ConcurrentHashMap<String, CompletableFuture<Void>> rebuildSignals = new ConcurrentHashMap<>();
+
+    private final BloomFilterGuard bloomFilterGuard;
+
+    /**
+     * 写入缓存使用的序列化格式，读取时按数据自动识别
+     */
+    private final CacheCodec codec;
+
+    /**
+     * 按 key 前缀指定的序列化格式与锁前缀（缓存区域），未指定时使用默认值
+     */
+    private final Map<String, CacheCodec> regionCodecs = new ConcurrentHashMap<>();
+    private final Map<String, String> lockPrefixes = new ConcurrentHashMap<>();
+
+    /**
+     * 逻辑过期缓存是否开启提前刷新
+     */
+    private final boolean earlyRefreshEnabled;
+
+    /**
+     * TTL 随机抖动，打散批量写入的 key 的过期时间
+     */
+    private final CacheTtlPolicy ttlPolicy;
+
+    /**
+     * 限制集群内同一前缀同时查库重建的数量
+     */
+    private final RebuildLimiter rebuildLimiter;
+
+    /**
+     * 按 key 前缀统计的命中率、锁竞争与各环节耗时
+     */
+    private final CacheMetrics cacheMetrics;
 
-    public CacheClient(StringRedisTemplate stringRedisTemplate) {
+    /**
+     * 异步重建调度（去重、有界队列、按热度优先）
+     */
+    private final RebuildScheduler rebuildScheduler;
+
+    /**
+     * 异步查询使用的 Lettuce 非阻塞连接，value 按原始字节读取
+     */
+    private final ReactiveRedisTemplate<String, byte[]> reactiveRedisTemplate;
+
+    /**
+     * 异步查询未命中时执行阻塞的查库与重建，队列有界，满时直接失败
+     */
+    private final ThreadPoolExecutor asyncLoadExecutor = new ThreadPoolExecutor(
+            SystemConstants.ASYNC_LOAD_THREADS, SystemConstants.ASYNC_LOAD_THREADS, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(SystemConstants.ASYNC_LOAD_QUEUE_CAPACITY));
+
+    public CacheClient(StringRedisTemplate stringRedisTemplate, ReactiveRedisConnectionFactory reactiveConnectionFactory,
+                       BloomFilterGuard bloomFilterGuard,
+                       RebuildLimiter rebuildLimiter, MeterRegistry meterRegistry, RebuildScheduler rebuildScheduler,
+                       @Value("${cache.local.enabled:true}") boolean localCacheEnabled,
+                       @Value("${cache.codec:json}") String codecName,
+                       @Value("${cache.logical.early-refresh:true}") boolean earlyRefreshEnabled,
+                       @Value("${cache.ttl.jitter-ratio:" + CACHE_TTL_JITTER_RATIO + "}") double jitterRatio) {
         this.stringRedisTemplate = stringRedisTemplate;
+        this.reactiveRedisTemplate = new ReactiveRedisTemplate<>(reactiveConnectionFactory,
+                RedisSerializationContext.<String, byte[]>newSerializationContext(RedisSerializer.string())
+                        .value(RedisSerializationContext.SerializationPair.byteArray())
+                        .build());
+        this.bloomFilterGuard = bloomFilterGuard;
+        this.rebuildLimiter = rebuildLimiter;
+        this.cacheMetrics = new CacheMetrics(meterRegistry);
+        this.rebuildScheduler = rebuildScheduler;
+        this.ttlPolicy = new CacheTtlPolicy(jitterRatio);
+        this.codec = CacheCodecs.of(codecName);
+        this.earlyRefreshEnabled = earlyRefreshEnabled;
+        this.localCache = localCacheEnabled
+                ? new LocalCache(LOCAL_CACHE_MAX_SIZE, TimeUnit.SECONDS.toMillis(LOCAL_CACHE_TTL))
+                : null;
     }
 
     public void set(String key, Object value, Long time, TimeUnit unit) {
-        stringRedisTemplate.opsForValue().set(key, JSONUtil.toJsonStr(value), time, unit);
+        setRaw(key, codecOf(key).encode(value), jitteredExpiration(key, time, unit));
+        publishInvalidation(key);
     }
 
     public void setWithLogicalExpire(String key, Object value, Long time, TimeUnit unit) {
-        // 设置逻辑过期时间
-        RedisData redisData = new RedisData();
-        redisData.setData(value);
-        redisData.setExpireTime(LocalDateTime.now().plusSeconds(unit.toSeconds(time)));
-        // 写入 Redis
-        stringRedisTemplate.opsForValue().set(key, JSONUtil.toJsonStr(redisData));
+        setWithLogicalExpire(key, value, time, unit, 0L);
+    }
+
+    /**
+     * 写入逻辑过期缓存
+     * @param rebuildCost 本次重建耗时（毫秒），用于提前刷新
+     */
+    public void setWithLogicalExpire(String key, Object value, Long time, TimeUnit unit, long rebuildCost) {
+        // 设置逻辑过期时间（加随机抖动），写入 Redis
+        long expireAt = System.currentTimeMillis() + ttlPolicy.jitteredMillis(key, time, unit);
+        setRaw(key, codecOf(key).encodeLogical(value, expireAt, rebuildCost), Expiration.persistent());
+        publishInvalidation(key);
+    }
+
+    /**
+     * 批量写入逻辑过期缓存，一次管道提交，用于预热
+     * @param keyPrefix key 前缀
+     * @param values id -> 数据
+     * @param rebuildCost 单条数据的重建耗时（毫秒），用于提前刷新，不大于 0 时不会提前刷新
+     */
+    public <ID> void setBatchWithLogicalExpire(
+            String keyPrefix, Map<ID, ?> values, Long time, TimeUnit unit, long rebuildCost) {
+        if (values.isEmpty()) {
+            return;
+        }
+        writeBatch(keyPrefix, values.keySet(), values, time, unit, true, rebuildCost, Collections.emptyList());
+    }
+
+    /**
+     * 缓存空值，防止缓存穿透
+     */
+    private void setNull(String key) {
+        setRaw(key, EMPTY, jitteredExpiration(key, CACHE_NULL_TTL, TimeUnit.MINUTES));
+        publishInvalidation(key);
+    }
+
+    /**
+     * 删除缓存，并通知所有节点清除一级缓存
+     * @param key 缓存 key
+     */
+    public void delete(String key) {
+        stringRedisTemplate.delete(key);
+        publishInvalidation(key);
+    }
+
+    /**
+     * 缓存变更消息，格式为 节点标识|key，由消息监听器调用
+     * 本节点发出的消息已在发送前处理过，直接忽略，避免清掉刚写入的一级缓存
+     * @param message 消息内容
+     */
+    public void onInvalidationMessage(String message) {
+        int idx = message.indexOf('|');
+        if (idx < 0 || NODE_ID.equals(message.substring(0, idx))) {
+            return;
+        }
+        onKeyChanged(message.substring(idx + 1));
+    }
+
+    /**
+     * 缓存 key 被写入或删除：清除本节点的一级缓存，并唤醒等待该 key 重建的线程
+     * @param key 缓存 key
+     */
+    private void onKeyChanged(String key) {
+        evictLocal(key);
+        CompletableFuture<Void> signal = rebuildSignals.remove(key);
+        if (signal != null) {
+            signal.complete(null);
+        }
+    }
+
+    private void evictLocal(String key) {
+        hotKeyCache.invalidate(key);
+        if (localCache != null) {
+            localCache.invalidate(key);
+        }
+    }
+
+    public CacheStats getCacheStats() {
+        return cacheStats;
+    }
+
+    /**
+     * 本节点当前的热点 key 及窗口内估计的访问次数
+     */
+    public Map<String, Long> getHotKeys() {
+        return hotKeyDetector.getHotKeys();
+    }
+
+    /**
+     * 配置缓存区域：该前缀下的 key 使用指定的序列化格式和锁前缀
+     * @param keyPrefix key 前缀
+     * @param lockPrefix 互斥锁 key 前缀，为 null 时使用 lock: + keyPrefix
+     * @param codec 序列化格式，为 null 时使用默认格式
+     */
+    public void configureRegion(String keyPrefix, String lockPrefix, CacheCodec codec) {
+        if (lockPrefix != null) {
+            lockPrefixes.put(keyPrefix, lockPrefix);
+        }
+        if (codec != null) {
+            regionCodecs.put(keyPrefix, codec);
+        }
+    }
+
+    /**
+     * 按最长匹配的 key 前缀取序列化格式
+     */
+    private CacheCodec codecOf(String key) {
+        String matched = null;
+        for (String prefix : regionCodecs.keySet()) {
+            if (key.startsWith(prefix) && (matched == null || prefix.length() > matched.length())) {
+                matched = prefix;
+            }
+        }
+        return matched == null ? codec : regionCodecs.get(matched);
+    }
+
+    private String lockKeyOf(String keyPrefix, Object id) {
+        return lockPrefixes.getOrDefault(keyPrefix, LOCK_KEY_PREFIX + keyPrefix) + id;
+    }
+
+    public CacheTtlPolicy getTtlPolicy() {
+        return ttlPolicy;
+    }
+
+    private Expiration jitteredExpiration(String key, long time, TimeUnit unit) {
+        return Expiration.milliseconds(ttlPolicy.jitteredMillis(key, time, unit));
+    }
+
+    /**
+     * 获取重建许可后查库，超出并发上限时排队等待，等待超时则放弃本次重建，避免数据库被同时击穿
+     * @param keyPrefix key 前缀，按前缀限流
+     * @param key 本次重建的缓存 key
+     * @param loader 查库逻辑
+     * @throws RebuildBusyException 等待许可超时，调用方不写缓存，返回旧数据或 null
+     */
+    private <T> T loadWithPermit(String keyPrefix, String key, Supplier<T> loader) {
+        String permitId = rebuildLimiter.tryAcquire(keyPrefix, LOCK_WAIT_MILLIS);
+        if (permitId == null) {
+            cacheMetrics.recordRebuildRejected(key);
+            throw new RebuildBusyException();
+        }
+        try {
+            return cacheMetrics.record(DB_LOAD, key, loader);
+        } finally {
+            rebuildLimiter.release(keyPrefix, permitId);
+        }
+    }
+
+    /**
+     * 重建许可已用完，仅在本类内部抛出和处理，不会传给调用方
+     */
+    private static class RebuildBusyException extends RuntimeException {
+        private RebuildBusyException() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * 先清本地，再通过 pub/sub 广播给其他节点（清除一级缓存、唤醒等待重建的线程）
+     */
+    private void publishInvalidation(String key) {
+        onKeyChanged(key);
+        stringRedisTemplate.convertAndSend(CACHE_INVALIDATE_CHANNEL, NODE_ID + "|" + key);
+    }
+
+    private byte[] getRaw(String key) {
+        return cacheMetrics.record(REDIS_GET, key, () ->
+                stringRedisTemplate.execute((RedisCallback<byte[]>) connection -> connection.get(rawKey(key))));
+    }
+
+    private List<byte[]> multiGetRaw(List<String> keys) {
+        byte[][] rawKeys = keys.stream().map(this::rawKey).toArray(byte[][]::new);
+        return cacheMetrics.record(REDIS_GET, keys.get(0), () ->
+                stringRedisTemplate.execute((RedisCallback<List<byte[]>>) connection -> connection.mGet(rawKeys)));
+    }
+
+    public CacheMetrics getCacheMetrics() {
+        return cacheMetrics;
+    }
+
+    private void setRaw(String key, byte[] value, Expiration expiration) {
+        stringRedisTemplate.execute((RedisCallback<Object>) connection ->
+                connection.set(rawKey(key), value, expiration, RedisStringCommands.SetOption.upsert()));
+    }
+
+    private byte[] rawKey(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 按数据首字节识别格式后解码，格式不兼容（如滚动发布期间的新格式）时返回 null，按未命中处理
+     */
+    private <R> R decode(String key, byte[] bytes, Type type) {
+        try {
+            return cacheMetrics.record(DECODE, key, () -> CacheCodecs.forBytes(bytes).decode(bytes, type));
+        } catch (RuntimeException e) {
+            log.debug("缓存 {} 解码失败，按未命中处理: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    private CacheEnvelope decodeLogical(String key, byte[] bytes) {
+        try {
+            return cacheMetrics.record(DECODE, key, () -> CacheCodecs.forBytes(bytes).decodeLogical(bytes));
+        } catch (RuntimeException e) {
+            log.debug("缓存 {} 解码失败，按未命中处理: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    private <R> R decodePayload(String key, CacheEnvelope envelope, Type type) {
+        try {
+            return cacheMetrics.record(DECODE, key, () -> envelope.getValue(type));
+        } catch (RuntimeException e) {
+            log.debug("缓存 {} 解码失败，按未命中处理: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <R> R getLocal(String key, Type type) {
+        Class<?> rawType = TypeUtil.getClass(type);
+        // 记录访问频率，热点 key 优先读本地副本
+        if (hotKeyDetector.record(key)) {
+            Object hot = hotKeyCache.get(key);
+            if (rawType.isInstance(hot)) {
+                cacheStats.recordL1(true);
+                return (R) hot;
+            }
+        }
+        if (localCache == null) {
+            return null;
+        }
+        Object value = localCache.get(key);
+        boolean hit = rawType.isInstance(value);
+        cacheStats.recordL1(hit);
+        return hit ? (R) value : null;
+    }
+
+    private void recordFalsePositive(String keyPrefix) {
+        if (bloomFilterGuard.isRegistered(keyPrefix)) {
+            bloomFilterGuard.recordFalsePositive(keyPrefix);
+        }
+    }
+
+    private void putLocal(String key, Object value) {
+        if (localCache != null) {
+            localCache.put(key, value);
+        }
+        if (hotKeyDetector.isHot(key)) {
+            hotKeyCache.put(key, value);
+        }
     }
 
     public <R, ID> R queryWithPenetrateGuard(
-            String keyPrefix, ID id, Class<R> type, Function<ID, R> dbFallback, Long time, TimeUnit unit) {
-        // 1. 从 Redis 中查找缓存
+            String keyPrefix, ID id, Type type, Function<ID, R> dbFallback, Long time, TimeUnit unit) {
+        // 1. 先查一级缓存，再经布隆过滤器拦截一定不存在的 id，最后从 Redis 中查找缓存
         String key = keyPrefix + id;
-        String json = stringRedisTemplate.opsForValue().get(key);
-        // 2. 判断是否存在
-        if (StrUtil.isNotEmpty(json)) {
-            // 3. 存在，直接返回
-            return JSONUtil.toBean(json, type);
+        R local = getLocal(key, type);
+        if (local != null) {
+            cacheMetrics.recordRequest(key, L1_HIT);
+            return local;
+        }
+        if (!bloomFilterGuard.mightContain(keyPrefix, id)) {
+            cacheMetrics.recordRequest(key, FILTERED);
+            return null;
         }
-        // 判断命中的是否为 ""
-        if (json != null) {
+        byte[] bytes = getRaw(key);
+        cacheStats.recordL2(bytes != null);
+        // 2. 判断是否存在
+        if (bytes != null && bytes.length > 0) {
+            // 3. 存在，放入一级缓存后返回
+            R r = decode(key, bytes, type);
+            if (r != null) {
+                cacheMetrics.recordRequest(key, HIT);
+                putLocal(key, r);
+                return r;
+            }
+        } else if (bytes != null) {
+            // 命中的是空值
+            cacheMetrics.recordRequest(key, NULL_HIT);
             return null;
         }
+        cacheMetrics.recordRequest(key, MISS);
 
-        // 4. 不存在，根据id查询数据库
-        R r = dbFallback.apply(id);
+        // 4. 不存在，根据id查询数据库（受重建并发上限约束，超出上限时不写缓存，直接返回 null）
+        R r;
+        try {
+            r = loadWithPermit(keyPrefix, key, () -> dbFallback.apply(id));
+        } catch (RebuildBusyException e) {
+            return null;
+        }
         // 5. 数据库中不存在，返回错误
         if (r == null) {
+            // 启用布隆过滤器时只有误判的 id 会走到这里，空值仍短暂缓存，避免同一个 id 反复查库
+            recordFalsePositive(keyPrefix);
             // 将空值写入 redis
-            this.set(key, "", CACHE_NULL_TTL, TimeUnit.MINUTES);
+            setNull(key);
             // 返回错误
             return null;
         }
         // 6. 存在，写入 redis
         this.set(key, r, time, unit);
+        putLocal(key, r);
 
         return r;
     }
 
+    /**
+     * 批量查询：一次 MGET 查缓存，未命中的 id 一次性查库，再通过管道批量回写
+     * 与单 key 查询一样使用一级缓存、布隆过滤器与空值缓存
+     * @param dbFallback 批量查库，返回 id -> 数据，不存在的 id 不放入 map
+     * @return 与入参顺序一致的结果，不存在的 id 对应位置为 null
+     */
+    public <R, ID> List<R> queryBatch(
+            String keyPrefix, Collection<ID> ids, Class<R> type,
+            Function<Collection<ID>, Map<ID, R>> dbFallback, Long time, TimeUnit unit) {
+        if (ids == null || ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<ID, R> found = new HashMap<>(ids.size());
+        // 1. 一级缓存、布隆过滤器，其余 id 一次 MGET
+        List<ID> missIds = new ArrayList<>();
+        lookupBatch(keyPrefix, ids, type, found).forEach((id, bytes) -> {
+            String key = keyPrefix + id;
+            cacheStats.recordL2(bytes != null);
+            R r = bytes != null && bytes.length > 0 ? decode(key, bytes, type) : null;
+            if (r != null) {
+                cacheMetrics.recordRequest(key, HIT);
+                putLocal(key, r);
+                found.put(id, r);
+            } else if (bytes == null || bytes.length > 0) {
+                // 命中空值说明数据库中不存在，跳过；其余按未命中处理
+                cacheMetrics.recordRequest(key, MISS);
+                missIds.add(id);
+            } else {
+                cacheMetrics.recordRequest(key, NULL_HIT);
+            }
+        });
+        // 2. 未命中的 id 一次性查询数据库，管道批量回写
+        loadBatch(keyPrefix, missIds, dbFallback, time, unit, false, Collections.emptyList(), found);
+        // 3. 按入参顺序返回
+        return ids.stream().map(found::get).collect(Collectors.toList());
+    }
+
+    /**
+     * 逻辑过期缓存的批量查询：一次 MGET 查缓存
+     * 有未命中的 id 时同步查库，已过期（或需要提前刷新）的 id 一并查询；否则过期的 id 合并为一个异步重建任务，先返回旧数据
+     * 过期的 id 需先拿到各自的互斥锁才参与重建（异步重建在任务开始执行时获取），查库结果（含空值）通过一次管道写入并释放锁
+     * @param dbFallback 批量查库，返回 id -> 数据，不存在的 id 不放入 map
+     * @return 与入参顺序一致的结果，不存在的 id 对应位置为 null
+     */
+    public <R, ID> List<R> queryBatchWithLogicalExpire(
+            String keyPrefix, Collection<ID> ids, Class<R> type,
+            Function<Collection<ID>, Map<ID, R>> dbFallback, Long time, TimeUnit unit) {
+        if (ids == null || ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<ID, R> found = new HashMap<>(ids.size());
+        // 1. 一级缓存、布隆过滤器，其余 id 一次 MGET
+        List<ID> missIds = new ArrayList<>();
+        // 过期的 id -> 是否为提前刷新
+        Map<ID, Boolean> staleIds = new LinkedHashMap<>();
+        lookupBatch(keyPrefix, ids, type, found).forEach((id, bytes) -> {
+            String key = keyPrefix + id;
+            cacheStats.recordL2(bytes != null && bytes.length > 0);
+            if (bytes != null && bytes.length == 0) {
+                // 命中空值说明数据库中不存在，跳过
+                cacheMetrics.recordRequest(key, NULL_HIT);
+                return;
+            }
+            CacheEnvelope envelope = bytes == null ? null : decodeLogical(key, bytes);
+            R r = envelope == null ? null : decodePayload(key, envelope, type);
+            if (r == null) {
+                cacheMetrics.recordRequest(key, MISS);
+                missIds.add(id);
+                return;
+            }
+            found.put(id, r);
+            // 2. 判断是否过期或需要提前刷新
+            boolean expired = envelope.isExpired();
+            boolean refreshEarly = !expired && earlyRefreshEnabled && shouldRefreshEarly(envelope);
+            cacheMetrics.recordRequest(key, expired ? STALE : HIT);
+            if (!expired && !refreshEarly) {
+                putLocal(key, r);
+            } else {
+                staleIds.put(id, refreshEarly);
+            }
+        });
+        if (!missIds.isEmpty()) {
+            // 3. 有未命中的 id，同步查库；过期的 id 批量获取互斥锁，拿到锁的一并查询并返回新数据
+            List<ID> lockedIds = tryLockBatch(keyPrefix, staleIds.keySet());
+            List<String> lockKeys = lockedIds.stream().map(id -> lockKeyOf(keyPrefix, id)).collect(Collectors.toList());
+            List<ID> loadIds = new ArrayList<>(missIds);
+            loadIds.addAll(lockedIds);
+            if (loadBatch(keyPrefix, loadIds, dbFallback, time, unit, true, lockKeys, found)) {
+                lockedIds.forEach(id -> cacheStats.recordRebuild(staleIds.get(id)));
+            }
+        } else if (!staleIds.isEmpty()) {
+            // 4. 只有过期的 id，提交一个异步重建任务，返回旧数据
+            rebuildBatchAsync(keyPrefix, staleIds, dbFallback, time, unit);
+        }
+        // 5. 按入参顺序返回
+        return ids.stream().map(found::get).collect(Collectors.toList());
+    }
+
+    /**
+     * 批量查询的公共部分：先查一级缓存，再经布隆过滤器拦截一定不存在的 id，其余 id 一次 MGET
+     * @param found 一级缓存命中的数据放入其中
+     * @return 查询了 Redis 的 id -> Redis 中的原始值（不存在为 null），按入参顺序
+     */
+    private <R, ID> Map<ID, byte[]> lookupBatch(String keyPrefix, Collection<ID> ids, Class<R> type, Map<ID, R> found) {
+        List<ID> redisIds = new ArrayList<>();
+        Set<ID> seen = new LinkedHashSet<>();
+        for (ID id : ids) {
+            if (!seen.add(id)) {
+                continue;
+            }
+            R local = getLocal(keyPrefix + id, type);
+            if (local != null) {
+                cacheMetrics.recordRequest(keyPrefix + id, L1_HIT);
+                found.put(id, local);
+            } else if (bloomFilterGuard.mightContain(keyPrefix, id)) {
+                redisIds.add(id);
+            } else {
+                cacheMetrics.recordRequest(keyPrefix + id, FILTERED);
+            }
+        }
+        Map<ID, byte[]> values = new LinkedHashMap<>(redisIds.size());
+        if (redisIds.isEmpty()) {
+            return values;
+        }
+        List<byte[]> raw = multiGetRaw(redisIds.stream().map(id -> keyPrefix + id).collect(Collectors.toList()));
+        for (int i = 0; i < redisIds.size(); i++) {
+            values.put(redisIds.get(i), raw == null ? null : raw.get(i));
+        }
+        return values;
+    }
+
+    /**
+     * 批量查库（受重建并发上限约束），查询结果与空值通过一次管道写入，并放入一级缓存与 found
+     * @param logical 是否写入逻辑过期格式
+     * @param lockKeys 写入后一并释放的互斥锁
+     * @return false 表示超出重建并发上限，未查库，锁已释放
+     */
+    private <R, ID> boolean loadBatch(String keyPrefix, List<ID> loadIds, Function<Collection<ID>, Map<ID, R>> dbFallback,
+                                      Long time, TimeUnit unit, boolean logical, List<String> lockKeys, Map<ID, R> found) {
+        if (loadIds.isEmpty()) {
+            return true;
+        }
+        long begin = System.currentTimeMillis();
+        Map<ID, R> loaded;
+        try {
+            loaded = loadWithPermit(keyPrefix, keyPrefix + loadIds, () -> dbFallback.apply(loadIds));
+        } catch (RebuildBusyException e) {
+            unlockBatch(lockKeys);
+            return false;
+        }
+        // 批量查库的耗时按条数均摊，至少 1 毫秒
+        long rebuildCost = Math.max(1L, (System.currentTimeMillis() - begin) / loadIds.size());
+        writeBatch(keyPrefix, loadIds, loaded, time, unit, logical, rebuildCost, lockKeys);
+        for (ID id : loadIds) {
+            R r = loaded.get(id);
+            if (r == null) {
+                recordFalsePositive(keyPrefix);
+                found.remove(id);
+                continue;
+            }
+            putLocal(keyPrefix + id, r);
+            found.put(id, r);
+        }
+        return true;
+    }
+
+    /**
+     * 过期 id 的异步批量重建：按批次中最热的 key 排队，一次查库、一次管道写入
+     * 互斥锁与重建许可在任务开始执行时才获取，排队时间不占用它们的租期；拿不到的 id 跳过，调用方已返回旧数据
+     * @param staleIds 过期的 id -> 是否为提前刷新
+     */
+    private <R, ID> void rebuildBatchAsync(String keyPrefix, Map<ID, Boolean> staleIds,
+                                           Function<Collection<ID>, Map<ID, R>> dbFallback, Long time, TimeUnit unit) {
+        String batchKey = keyPrefix + staleIds.keySet();
+        long priority = staleIds.keySet().stream().mapToLong(id -> hotKeyDetector.estimate(keyPrefix + id)).max().orElse(0);
+        rebuildScheduler.submit(batchKey, priority, () -> {
+            // 1. 批量获取互斥锁
+            List<ID> lockedIds = tryLockBatch(keyPrefix, staleIds.keySet());
+            if (lockedIds.isEmpty()) {
+                return;
+            }
+            List<String> lockKeys = lockedIds.stream().map(id -> lockKeyOf(keyPrefix, id)).collect(Collectors.toList());
+            // 2. 获取重建许可（不等待），超出并发上限时释放锁
+            String permitId = rebuildLimiter.tryAcquire(keyPrefix, 0);
+            if (permitId == null) {
+                cacheMetrics.recordRebuildRejected(batchKey);
+                unlockBatch(lockKeys);
+                return;
+            }
+            lockedIds.forEach(id -> cacheStats.recordRebuild(staleIds.get(id)));
+            // 3. 一次查库、一次管道写入并释放锁
+            boolean written = false;
+            try {
+                long begin = System.currentTimeMillis();
+                Map<ID, R> loaded = cacheMetrics.record(DB_LOAD, batchKey, () -> dbFallback.apply(lockedIds));
+                long rebuildCost = Math.max(1L, (System.currentTimeMillis() - begin) / lockedIds.size());
+                writeBatch(keyPrefix, lockedIds, loaded, time, unit, true, rebuildCost, lockKeys);
+                written = true;
+            } finally {
+                rebuildLimiter.release(keyPrefix, permitId);
+                if (!written) {
+                    unlockBatch(lockKeys);
+                }
+            }
+        });
+    }
+
+    /**
+     * 一次管道写入：存在的数据按格式写入，不存在的写入空值，每个 key 单独计算抖动，同一批写入的 key 不会同时过期
+     * 同时广播缓存变更、释放互斥锁
+     * @param values id -> 数据，ids 中不在 values 里的 id 写入空值
+     * @param logical 是否写入逻辑过期格式
+     * @param rebuildCost 单条数据的重建耗时（毫秒），逻辑过期格式用于提前刷新
+     * @param lockKeys 写入后释放的互斥锁
+     */
+    private <ID> void writeBatch(String keyPrefix, Collection<ID> ids, Map<ID, ?> values, Long time, TimeUnit unit,
+                                 boolean logical, long rebuildCost, List<String> lockKeys) {
+        long now = System.currentTimeMillis();
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (ID id : ids) {
+                String key = keyPrefix + id;
+                Object value = values.get(id);
+                if (value == null) {
+                    connection.set(rawKey(key), EMPTY, jitteredExpiration(key, CACHE_NULL_TTL, TimeUnit.MINUTES),
+                            RedisStringCommands.SetOption.upsert());
+                } else if (logical) {
+                    long expireAt = now + ttlPolicy.jitteredMillis(key, time, unit);
+                    connection.set(rawKey(key), codecOf(key).encodeLogical(value, expireAt, rebuildCost),
+                            Expiration.persistent(), RedisStringCommands.SetOption.upsert());
+                } else {
+                    connection.set(rawKey(key), codecOf(key).encode(value), jitteredExpiration(key, time, unit),
+                            RedisStringCommands.SetOption.upsert());
+                }
+                // 通知其他节点清除一级缓存
+                connection.publish(rawKey(CACHE_INVALIDATE_CHANNEL), rawKey(NODE_ID + "|" + key));
+            }
+            for (String lockKey : lockKeys) {
+                connection.del(rawKey(lockKey));
+            }
+            return null;
+        });
+        ids.forEach(id -> onKeyChanged(keyPrefix + id));
+    }
+
+    /**
+     * 管道批量获取互斥锁
+     * @return 拿到锁的 id
+     */
+    private <ID> List<ID> tryLockBatch(String keyPrefix, Collection<ID> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<ID> idList = new ArrayList<>(ids);
+        byte[] lockValue = rawKey("1");
+        List<Object> results = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (ID id : idList) {
+                connection.set(rawKey(lockKeyOf(keyPrefix, id)), lockValue,
+                        Expiration.seconds(LOCK_SHOP_TTL), RedisStringCommands.SetOption.ifAbsent());
+            }
+            return null;
+        });
+        List<ID> locked = new ArrayList<>();
+        for (int i = 0; i < idList.size(); i++) {
+            if (Boolean.TRUE.equals(results.get(i))) {
+                locked.add(idList.get(i));
+            } else {
+                cacheMetrics.recordLockFailure(keyPrefix + idList.get(i));
+            }
+        }
+        return locked;
+    }
+
+    private void unlockBatch(List<String> lockKeys) {
+        if (!lockKeys.isEmpty()) {
+            stringRedisTemplate.delete(lockKeys);
+        }
+    }
+
     public <R, ID> R queryWithLogicalExpire(
-            String keyPrefix, ID id, Class<R> type, Function<ID, R> dbFallback, Long time, TimeUnit unit) {
-        // 1. 从 redis 中查缓存
+            String keyPrefix, ID id, Type type, Function<ID, R> dbFallback, Long time, TimeUnit unit) {
+        // 1. 先查一级缓存，再经布隆过滤器拦截，最后从 redis 中查缓存
         String key = keyPrefix + id;
-        String json = stringRedisTemplate.opsForValue().get(key);
+        R local = getLocal(key, type);
+        if (local != null) {
+            cacheMetrics.recordRequest(key, L1_HIT);
+            return local;
+        }
+        if (!bloomFilterGuard.mightContain(keyPrefix, id)) {
+            cacheMetrics.recordRequest(key, FILTERED);
+            return null;
+        }
+        byte[] bytes = getRaw(key);
+        cacheStats.recordL2(bytes != null && bytes.length > 0);
         // 2. 判断是否存在
-        if (StrUtil.isBlank(json)) {
-            // 3. 为空，返回错误
+        if (bytes != null && bytes.length == 0) {
+            // 命中的是空值
+            cacheMetrics.recordRequest(key, NULL_HIT);
             return null;
         }
-        // 4. 命中，将 JSON 反序列化为对象
-        RedisData redisData = JSONUtil.toBean(json, RedisData.class);
-        R r = JSONUtil.toBean(redisData.getData().toString(), type);
-        LocalDateTime expireTime = redisData.getExpireTime();
-        // 5. 判断是否过期
-        if (expireTime.isAfter(LocalDateTime.now())) {
-            // 没过期，直接返回信息
+        CacheEnvelope envelope = bytes == null ? null : decodeLogical(key, bytes);
+        if (envelope == null) {
+            // 3. 未预热或已被删除，同步加载一次（同一 JVM 内合并）
+            cacheMetrics.recordRequest(key, MISS);
+            try {
+                return singleFlight.execute(key, () -> loadLogical(keyPrefix, id, type, dbFallback, time, unit));
+            } catch (RebuildBusyException e) {
+                return null;
+            }
+        }
+        // 4. 命中，一次解析出过期时间与数据
+        R r = decodePayload(key, envelope, type);
+        if (r == null) {
+            return null;
+        }
+        // 5. 判断是否过期；开启提前刷新时，按重建耗时概率性地在过期前开始重建（XFetch）
+        boolean expired = envelope.isExpired();
+        boolean refreshEarly = !expired && earlyRefreshEnabled && shouldRefreshEarly(envelope);
+        cacheMetrics.recordRequest(key, expired ? STALE : HIT);
+        if (!expired && !refreshEarly) {
+            // 没过期，放入一级缓存后返回
+            putLocal(key, r);
             return r;
         }
-        // 6. 过期，缓存重建
-        String lockKey = LOCK_SHOP_KEY + id;
-        Boolean isLock = false;
-        try {
-            isLock = tryLock(lockKey);
-            // 若拿到锁，重新查找数据库
-            if (isLock) {
-                CACHE_REBUILD_EXECUTOR.submit(() -> {
-                    try {
-                        // 查询数据库
-                        R newR = dbFallback.apply(id);
-                        // 重建缓存
-                        this.setWithLogicalExpire(key, newR, time, unit);
-                    } catch (Exception e) {
-                        throw new RuntimeException(e);
-                    } finally {
-                        unlock(lockKey);
-                    }
-                });
+        // 6. 过期或提前刷新，缓存重建
+        rebuildLogical(keyPrefix, id, dbFallback, time, unit, refreshEarly, envelope.getExpireAt());
+        // 返回旧数据
+        return r;
+    }
+
+    /**
+     * 逻辑过期缓存的异步重建：按热度提交到重建队列，任务开始执行时才获取互斥锁与重建许可
+     * 排队时间不占用锁和许可的租期；拿不到锁、许可，或其他节点已完成重建时直接放弃，调用方已返回旧数据
+     * @param refreshEarly 是否为过期前的提前刷新
+     * @param expireAt 读到的逻辑过期时间，缓存中的过期时间已变化说明已被重建
+     */
+    private <R, ID> void rebuildLogical(String keyPrefix, ID id, Function<ID, R> dbFallback, Long time, TimeUnit unit,
+                                        boolean refreshEarly, long expireAt) {
+        String key = keyPrefix + id;
+        String lockKey = lockKeyOf(keyPrefix, id);
+        // 已有在途任务或队列已满时不提交，返回旧数据
+        rebuildScheduler.submit(key, hotKeyDetector.estimate(key), () -> {
+            // 1. 获取互斥锁
+            if (!tryLock(lockKey)) {
+                cacheMetrics.recordLockFailure(key);
+                return;
+            }
+            String permitId = null;
+            try {
+                // 2. double check，排队期间可能已被其他节点重建
+                byte[] bytes = getRaw(key);
+                CacheEnvelope current = bytes == null || bytes.length == 0 ? null : decodeLogical(key, bytes);
+                if (current != null && current.getExpireAt() != expireAt) {
+                    return;
+                }
+                // 3. 获取重建许可（不等待），超出并发上限时放弃
+                permitId = rebuildLimiter.tryAcquire(keyPrefix, 0);
+                if (permitId == null) {
+                    cacheMetrics.recordRebuildRejected(key);
+                    return;
+                }
+                cacheStats.recordRebuild(refreshEarly);
+                // 4. 查询数据库，记录重建耗时供下次提前刷新使用
+                long begin = System.currentTimeMillis();
+                R newR = cacheMetrics.record(DB_LOAD, key, () -> dbFallback.apply(id));
+                long rebuildCost = System.currentTimeMillis() - begin;
+                // 5. 重建缓存
+                if (newR == null) {
+                    this.delete(key);
+                } else {
+                    this.setWithLogicalExpire(key, newR, time, unit, rebuildCost);
+                }
+            } finally {
+                if (permitId != null) {
+                    rebuildLimiter.release(keyPrefix, permitId);
+                }
+                unlock(lockKey);
             }
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+        });
+    }
+
+    /**
+     * 逻辑过期缓存未命中时查库写入，数据库中不存在时缓存空值
+     */
+    private <R, ID> R loadLogical(
+            String keyPrefix, ID id, Type type, Function<ID, R> dbFallback, Long time, TimeUnit unit) {
+        String key = keyPrefix + id;
+        // double check，可能已被其他节点加载
+        byte[] bytes = getRaw(key);
+        if (bytes != null && bytes.length == 0) {
+            return null;
+        }
+        CacheEnvelope envelope = bytes == null ? null : decodeLogical(key, bytes);
+        R cached = envelope == null ? null : decodePayload(key, envelope, type);
+        if (cached != null) {
+            return cached;
         }
-        // 返回过期数据
+        long begin = System.currentTimeMillis();
+        R r = loadWithPermit(keyPrefix, key, () -> dbFallback.apply(id));
+        if (r == null) {
+            recordFalsePositive(keyPrefix);
+            setNull(key);
+            return null;
+        }
+        this.setWithLogicalExpire(key, r, time, unit, System.currentTimeMillis() - begin);
         return r;
     }
 
+    /**
+     * XFetch：now - rebuildCost * beta * ln(rand) >= expireAt 时提前刷新
+     * 越接近过期、重建越慢，提前刷新的概率越大，热点 key 不会在同一时刻集中过期
+     */
+    private boolean shouldRefreshEarly(CacheEnvelope envelope) {
+        long rebuildCost = envelope.getRebuildCost();
+        if (rebuildCost <= 0) {
+            return false;
+        }
+        double gap = -rebuildCost * XFETCH_BETA * Math.log(ThreadLocalRandom.current().nextDouble(Double.MIN_VALUE, 1.0));
+        return System.currentTimeMillis() + gap >= envelope.getExpireAt();
+    }
+
     public <R, ID> R queryWithMutex(
-            String keyPrefix, ID id, Class<R> type, Function<ID, R> dbFallback, Long time, TimeUnit unit) {
-        // 1. 从 redis 中查询缓存
+            String keyPrefix, ID id, Type type, Function<ID, R> dbFallback, Long time, TimeUnit unit) {
+        // 1. 先查一级缓存，再经布隆过滤器拦截，最后从 redis 中查询缓存
         String key = keyPrefix + id;
-        String json = stringRedisTemplate.opsForValue().get(key);
-        // 2. 判断是否存在
-        if (StrUtil.isNotBlank(json)) {
-            // 3. 存在，直接返回
-            return JSONUtil.toBean(json, type);
+        R local = getLocal(key, type);
+        if (local != null) {
+            cacheMetrics.recordRequest(key, L1_HIT);
+            return local;
         }
-        // 判断命中的是否是 ""
-        if (json != null) {
+        if (!bloomFilterGuard.mightContain(keyPrefix, id)) {
+            cacheMetrics.recordRequest(key, FILTERED);
             return null;
         }
+        byte[] bytes = getRaw(key);
+        cacheStats.recordL2(bytes != null);
+        // 2. 判断是否存在
+        if (bytes != null && bytes.length > 0) {
+            // 3. 存在，放入一级缓存后返回
+            R r = decode(key, bytes, type);
+            if (r != null) {
+                cacheMetrics.recordRequest(key, HIT);
+                putLocal(key, r);
+                return r;
+            }
+        } else if (bytes != null) {
+            // 命中的是空值
+            cacheMetrics.recordRequest(key, NULL_HIT);
+            return null;
+        }
+        cacheMetrics.recordRequest(key, MISS);
 
-        // 4. 缓存重建
-        // 4.1. 获取互斥锁
-        String lockKey = LOCK_SHOP_KEY + id;
-        R r = null;
+        // 4. 缓存重建：同一 JVM 内对同一 key 的并发未命中合并为一次，只有一个线程去竞争 Redis 互斥锁
+        // 超出重建并发上限时不写缓存，返回 null
         try {
-            Boolean isLock = tryLock(lockKey);
-            if (!isLock) {
-                // 4.3. 获取锁失败，休眠并重试
-                Thread.sleep(50);
-                return queryWithMutex(key, id, type, dbFallback, time, unit);
-            }
-            // 4.4. 获取锁成功，根据 id 查询数据库
-            r = dbFallback.apply(id);
-            // 5. 不存在，返回错误
-            if (r == null) {
-                // 空值写回 redis
-                stringRedisTemplate.opsForValue().set(key, "", CACHE_NULL_TTL, TimeUnit.MINUTES);
-                return null;
+            return singleFlight.execute(key, () -> rebuildWithMutex(keyPrefix, id, type, dbFallback, time, unit));
+        } catch (RebuildBusyException e) {
+            return null;
+        }
+    }
+
+    private <R, ID> R rebuildWithMutex(
+            String keyPrefix, ID id, Type type, Function<ID, R> dbFallback, Long time, TimeUnit unit) {
+        String key = keyPrefix + id;
+        String lockKey = lockKeyOf(keyPrefix, id);
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(LOCK_SHOP_TTL) * 2;
+        while (true) {
+            // 4.1. 先登记等待信号，再做检查，避免错过锁持有者写完缓存后的通知
+            CompletableFuture<Void> signal = rebuildSignals.computeIfAbsent(key, k -> new CompletableFuture<>());
+            try {
+                // 4.2. double check 缓存，可能已被其他节点重建
+                byte[] bytes = getRaw(key);
+                R cached = bytes != null && bytes.length > 0 ? decode(key, bytes, type) : null;
+                if (cached != null) {
+                    putLocal(key, cached);
+                    return cached;
+                }
+                if (bytes != null && bytes.length == 0) {
+                    return null;
+                }
+                // 4.3. 获取互斥锁
+                if (tryLock(lockKey)) {
+                    try {
+                        // 4.4. 获取锁成功，根据 id 查询数据库（受重建并发上限约束）
+                        R r = loadWithPermit(keyPrefix, key, () -> dbFallback.apply(id));
+                        // 5. 不存在，空值写回 redis
+                        if (r == null) {
+                            recordFalsePositive(keyPrefix);
+                            setNull(key);
+                            return null;
+                        }
+                        // 6. 存在，写入 redis（写入会广播通知，唤醒其他节点的等待者）
+                        this.set(key, r, time, unit);
+                        putLocal(key, r);
+                        return r;
+                    } finally {
+                        // 7. 释放锁
+                        unlock(lockKey);
+                    }
+                }
+                cacheMetrics.recordLockFailure(key);
+                if (System.currentTimeMillis() > deadline) {
+                    throw new RuntimeException("等待缓存重建超时: " + key);
+                }
+                // 4.5. 锁被其他节点持有，等待重建完成的通知，超时后重新检查（兜底锁持有者宕机的情况）
+                signal.get(LOCK_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException | ExecutionException ignored) {
+                // 超时后进入下一轮检查
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } finally {
+                rebuildSignals.remove(key, signal);
             }
-            // 6. 存在，写入 redis
-            this.set(key, r, time, unit);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        } finally {
-            // 7. 释放锁
-            unlock(lockKey);
         }
+    }
 
-        return r;
+    public <R, ID> CompletableFuture<R> queryWithPenetrateGuardAsync(
+            String keyPrefix, ID id, Type type, Function<ID, R> dbFallback, Long time, TimeUnit unit) {
+        return queryAsync(keyPrefix, id, type, false,
+                () -> queryWithPenetrateGuard(keyPrefix, id, type, dbFallback, time, unit));
+    }
+
+    public <R, ID> CompletableFuture<R> queryWithLogicalExpireAsync(
+            String keyPrefix, ID id, Type type, Function<ID, R> dbFallback, Long time, TimeUnit unit) {
+        return queryAsync(keyPrefix, id, type, true,
+                () -> queryWithLogicalExpire(keyPrefix, id, type, dbFallback, time, unit));
+    }
+
+    public <R, ID> CompletableFuture<R> queryWithMutexAsync(
+            String keyPrefix, ID id, Type type, Function<ID, R> dbFallback, Long time, TimeUnit unit) {
+        return queryAsync(keyPrefix, id, type, false,
+                () -> queryWithMutex(keyPrefix, id, type, dbFallback, time, unit));
+    }
+
+    /**
+     * 异步查询：一级缓存与 Redis 命中时全程不阻塞调用线程（Redis GET 使用 Lettuce 非阻塞命令）
+     * 未命中、逻辑过期、需要提前刷新或解码失败时，在 asyncLoadExecutor 中执行对应的同步查询，
+     * 由同步查询负责加锁、请求合并、重建限流与空值缓存
+     * @param logical 是否为逻辑过期格式
+     * @param blockingQuery 对应的同步查询
+     */
+    private <R, ID> CompletableFuture<R> queryAsync(
+            String keyPrefix, ID id, Type type, boolean logical, Supplier<R> blockingQuery) {
+        // 1. 一级缓存与布隆过滤器都在本地，直接判断
+        String key = keyPrefix + id;
+        R local = getLocal(key, type);
+        if (local != null) {
+            cacheMetrics.recordRequest(key, L1_HIT);
+            return CompletableFuture.completedFuture(local);
+        }
+        if (!bloomFilterGuard.mightContain(keyPrefix, id)) {
+            cacheMetrics.recordRequest(key, FILTERED);
+            return CompletableFuture.completedFuture(null);
+        }
+        // 2. 非阻塞 GET，回调在 Lettuce 的 IO 线程上执行，只做解码
+        long begin = System.nanoTime();
+        return reactiveRedisTemplate.opsForValue().get(key).toFuture().thenCompose(bytes -> {
+            cacheMetrics.recordDuration(REDIS_GET, key, System.nanoTime() - begin);
+            if (bytes != null && bytes.length == 0) {
+                cacheMetrics.recordRequest(key, NULL_HIT);
+                return CompletableFuture.completedFuture(null);
+            }
+            R r = bytes == null ? null : logical ? decodeFreshLogical(key, bytes, type) : decode(key, bytes, type);
+            if (r != null) {
+                cacheMetrics.recordRequest(key, HIT);
+                putLocal(key, r);
+                return CompletableFuture.completedFuture(r);
+            }
+            // 3. 交给同步查询处理
+            return CompletableFuture.supplyAsync(blockingQuery, asyncLoadExecutor);
+        });
+    }
+
+    /**
+     * 解码逻辑过期缓存，已过期或需要提前刷新时返回 null
+     */
+    private <R> R decodeFreshLogical(String key, byte[] bytes, Type type) {
+        CacheEnvelope envelope = decodeLogical(key, bytes);
+        if (envelope == null || envelope.isExpired() || (earlyRefreshEnabled && shouldRefreshEarly(envelope))) {
+            return null;
+        }
+        return decodePayload(key, envelope, type);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        asyncLoadExecutor.shutdownNow();
     }
 
-    private Boolean tryLock(String lockKey) {
-        return stringRedisTemplate.opsForValue().setIfAbsent(lockKey, "1", 10, TimeUnit.SECONDS);
+    private boolean tryLock(String lockKey) {
+        return BooleanUtil.isTrue(stringRedisTemplate.opsForValue().setIfAbsent(lockKey, "1", LOCK_SHOP_TTL, TimeUnit.SECONDS));
     }
 
     private void unlock(String lockKey) {
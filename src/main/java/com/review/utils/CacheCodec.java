@@ -0,0 +1,33 @@
+package com.review.utils;
+
+import java.lang.reflect.Type;
+
+/**
+ * 缓存序列化接口
+ * 编码结果直接作为 Redis value 存储；空字节数组保留给空值缓存，编码结果不能为空
+ */
+public interface CacheCodec {
+
+    /**
+     * 编码普通缓存值
+     */
+    byte[] encode(Object value);
+
+    /**
+     * 解码普通缓存值
+     * @param type 目标类型
+     */
+    <R> R decode(byte[] bytes, Type type);
+
+    /**
+     * 编码逻辑过期缓存
+     * @param expireAt 逻辑过期时间（毫秒时间戳）
+     * @param rebuildCost 重建耗时（毫秒），用于提前刷新
+     */
+    byte[] encodeLogical(Object value, long expireAt, long rebuildCost);
+
+    /**
+     * 解码逻辑过期缓存，只解析过期时间与重建耗时，数据在调用 {@link CacheEnvelope#getValue} 时才解析
+     */
+    CacheEnvelope decodeLogical(byte[] bytes);
+}
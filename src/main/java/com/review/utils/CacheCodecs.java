@@ -0,0 +1,21 @@
+package com.review.utils;
+
+/**
+ * 缓存序列化选择
+ * 写入使用配置的格式，读取时按数据首字节识别格式，新旧格式可在滚动发布期间共存
+ */
+public class CacheCodecs {
+
+    public static final String JSON = "json";
+    public static final String BINARY = "binary";
+
+    public static CacheCodec of(String name) {
+        return BINARY.equalsIgnoreCase(name) ? BinaryCacheCodec.INSTANCE : JsonCacheCodec.INSTANCE;
+    }
+
+    public static CacheCodec forBytes(byte[] bytes) {
+        return bytes.length > 0 && bytes[0] == BinaryCacheCodec.MAGIC
+                ? BinaryCacheCodec.INSTANCE
+                : JsonCacheCodec.INSTANCE;
+    }
+}
@@ -0,0 +1,33 @@
+package com.review.utils;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 缓存监控端点：/actuator/cache
+ * 明细指标（含耗时直方图）见 /actuator/metrics/cache.requests、cache.redis.get、cache.decode、cache.db.load、cache.rebuild.tasks 等
+ */
+@Component
+@Endpoint(id = "cache")
+public class CacheEndpoint {
+
+    @Resource
+    private CacheClient cacheClient;
+    @Resource
+    private RebuildScheduler rebuildScheduler;
+
+    @ReadOperation
+    public Map<String, Object> cache() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("prefixes", cacheClient.getCacheMetrics().summary());
+        result.put("tiers", cacheClient.getCacheStats().snapshot());
+        result.put("hotKeys", cacheClient.getHotKeys());
+        result.put("rebuildQueue", rebuildScheduler.getQueueDepth());
+        return result;
+    }
+}
@@ -0,0 +1,39 @@
+package com.review.utils;
+
+import java.lang.reflect.Type;
+import java.util.function.Function;
+
+/**
+ * 逻辑过期缓存的解码结果：过期时间、重建耗时已解析，数据按需解析
+ */
+public class CacheEnvelope {
+
+    private final long expireAt;
+
+    private final long rebuildCost;
+
+    private final Function<Type, Object> payloadDecoder;
+
+    public CacheEnvelope(long expireAt, long rebuildCost, Function<Type, Object> payloadDecoder) {
+        this.expireAt = expireAt;
+        this.rebuildCost = rebuildCost;
+        this.payloadDecoder = payloadDecoder;
+    }
+
+    public long getExpireAt() {
+        return expireAt;
+    }
+
+    public long getRebuildCost() {
+        return rebuildCost;
+    }
+
+    public boolean isExpired() {
+        return expireAt <= System.currentTimeMillis();
+    }
+
+    @SuppressWarnings("unchecked")
+    public <R> R getValue(Type type) {
+        return (R) payloadDecoder.apply(type);
+    }
+}
@@ -0,0 +1,154 @@
+package com.review.utils;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 按 key 前缀统计的缓存指标（Micrometer）
+ * 前缀取 key 中最后一个 ':' 及之前的部分，如 cache:shop:1 -> cache:shop:
+ * Counter 与 Timer 按前缀缓存，请求路径上不再每次构建、注册
+ */
+public class CacheMetrics {
+
+    /**
+     * 查询结果：一级缓存命中、Redis 命中、命中空值、未命中、逻辑过期后返回旧数据、被布隆过滤器拦截
+     */
+    public static final String L1_HIT = "l1_hit";
+    public static final String HIT = "hit";
+    public static final String NULL_HIT = "null_hit";
+    public static final String MISS = "miss";
+    public static final String STALE = "stale";
+    public static final String FILTERED = "filtered";
+
+    public static final String REQUESTS = "cache.requests";
+    public static final String LOCK_FAILURES = "cache.lock.failures";
+    public static final String REBUILD_REJECTED = "cache.rebuild.rejected";
+    public static final String REDIS_GET = "cache.redis.get";
+    public static final String DECODE = "cache.decode";
+    public static final String DB_LOAD = "cache.db.load";
+
+    private final MeterRegistry registry;
+
+    /**
+     * 前缀 -> 该前缀的指标
+     */
+    private final Map<String, PrefixMeters> meters = new ConcurrentHashMap<>();
+
+    public CacheMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public void recordRequest(String key, String result) {
+        String prefix = prefixOf(key);
+        get(metersOf(prefix).requests, result,
+                r -> registry.counter(REQUESTS, "prefix", prefix, "result", r)).increment();
+    }
+
+    public void recordLockFailure(String key) {
+        counter(LOCK_FAILURES, key).increment();
+    }
+
+    public void recordRebuildRejected(String key) {
+        counter(REBUILD_REJECTED, key).increment();
+    }
+
+    /**
+     * 记录一次操作耗时，带直方图（可计算分位数）
+     * @param name 指标名，如 cache.redis.get
+     */
+    public <T> T record(String name, String key, Supplier<T> supplier) {
+        return timer(name, key).record(supplier);
+    }
+
+    /**
+     * 记录异步操作的耗时
+     * @param nanos 耗时（纳秒）
+     */
+    public void recordDuration(String name, String key, long nanos) {
+        timer(name, key).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Counter counter(String name, String key) {
+        String prefix = prefixOf(key);
+        return get(metersOf(prefix).counters, name, n -> registry.counter(n, "prefix", prefix));
+    }
+
+    private Timer timer(String name, String key) {
+        String prefix = prefixOf(key);
+        return get(metersOf(prefix).timers, name, n -> Timer.builder(n)
+                .tag("prefix", prefix)
+                .publishPercentileHistogram()
+                .register(registry));
+    }
+
+    private PrefixMeters metersOf(String prefix) {
+        return get(meters, prefix, p -> new PrefixMeters());
+    }
+
+    /**
+     * 先 get，不存在时再 computeIfAbsent，命中时不加锁
+     */
+    private static <V> V get(Map<String, V> map, String key, Function<String, V> factory) {
+        V value = map.get(key);
+        return value != null ? value : map.computeIfAbsent(key, factory);
+    }
+
+    /**
+     * 按前缀汇总：请求数、各结果数、命中率，以及各耗时指标的次数 / 平均 / 最大值（毫秒）
+     */
+    public Map<String, Map<String, Object>> summary() {
+        Map<String, Map<String, Object>> summary = new TreeMap<>();
+        for (Counter counter : registry.find(REQUESTS).counters()) {
+            Map<String, Object> stats = summary.computeIfAbsent(counter.getId().getTag("prefix"), p -> new LinkedHashMap<>());
+            stats.put(counter.getId().getTag("result"), (long) counter.count());
+        }
+        summary.values().forEach(stats -> {
+            long total = stats.values().stream().mapToLong(v -> (Long) v).sum();
+            long hits = (Long) stats.getOrDefault(L1_HIT, 0L) + (Long) stats.getOrDefault(HIT, 0L)
+                    + (Long) stats.getOrDefault(NULL_HIT, 0L) + (Long) stats.getOrDefault(STALE, 0L);
+            stats.put("total", total);
+            stats.put("hitRatio", total == 0 ? 0 : (double) hits / total);
+        });
+        for (String name : new String[]{LOCK_FAILURES, REBUILD_REJECTED}) {
+            for (Counter counter : registry.find(name).counters()) {
+                summary.computeIfAbsent(counter.getId().getTag("prefix"), p -> new LinkedHashMap<>())
+                        .put(name, (long) counter.count());
+            }
+        }
+        for (String name : new String[]{REDIS_GET, DECODE, DB_LOAD}) {
+            for (Timer timer : registry.find(name).timers()) {
+                Map<String, Object> latency = new LinkedHashMap<>();
+                latency.put("count", timer.count());
+                latency.put("meanMs", timer.mean(TimeUnit.MILLISECONDS));
+                latency.put("maxMs", timer.max(TimeUnit.MILLISECONDS));
+                summary.computeIfAbsent(timer.getId().getTag("prefix"), p -> new LinkedHashMap<>()).put(name, latency);
+            }
+        }
+        return summary;
+    }
+
+    private static String prefixOf(String key) {
+        return key.substring(0, key.lastIndexOf(':') + 1);
+    }
+
+    private static class PrefixMeters {
+        /**
+         * 查询结果 -> 请求计数
+         */
+        private final Map<String, Counter> requests = new ConcurrentHashMap<>();
+        /**
+         * 指标名 -> 计数 / 耗时
+         */
+        private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+        private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    }
+}
@@ -0,0 +1,45 @@
+package com.review.utils;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 缓存区域：一类数据的 key 前缀、锁前缀、TTL、抖动比例、序列化格式与重建并发上限
+ */
+@Data
+@Accessors(chain = true)
+public class CacheRegion {
+
+    /**
+     * 区域名称，@Cached 通过名称引用
+     */
+    private String name;
+
+    private String keyPrefix;
+
+    /**
+     * 互斥锁 key 前缀，为空时使用 lock: + keyPrefix
+     */
+    private String lockPrefix;
+
+    private Long ttl;
+
+    private TimeUnit unit = TimeUnit.MINUTES;
+
+    /**
+     * TTL 抖动比例，为空时使用全局默认值
+     */
+    private Double jitterRatio;
+
+    /**
+     * 序列化格式（json / binary），为空时使用全局默认值
+     */
+    private String codec;
+
+    /**
+     * 集群内同时查库重建的上限，为空时使用全局默认值
+     */
+    private Integer maxRebuilds;
+}
@@ -0,0 +1,45 @@
+package com.review.utils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 缓存区域注册表，注册时把区域配置应用到 CacheClient 与重建限流
+ */
+public class CacheRegionRegistry {
+
+    private final CacheClient cacheClient;
+
+    private final RebuildLimiter rebuildLimiter;
+
+    private final Map<String, CacheRegion> regions = new ConcurrentHashMap<>();
+
+    public CacheRegionRegistry(CacheClient cacheClient, RebuildLimiter rebuildLimiter) {
+        this.cacheClient = cacheClient;
+        this.rebuildLimiter = rebuildLimiter;
+    }
+
+    public CacheRegionRegistry register(CacheRegion region) {
+        if (region.getName() == null || region.getKeyPrefix() == null || region.getTtl() == null) {
+            throw new IllegalArgumentException("缓存区域缺少 name / keyPrefix / ttl: " + region);
+        }
+        regions.put(region.getName(), region);
+        if (region.getJitterRatio() != null) {
+            cacheClient.getTtlPolicy().setJitter(region.getKeyPrefix(), region.getJitterRatio());
+        }
+        if (region.getMaxRebuilds() != null) {
+            rebuildLimiter.setMaxConcurrency(region.getKeyPrefix(), region.getMaxRebuilds());
+        }
+        cacheClient.configureRegion(region.getKeyPrefix(), region.getLockPrefix(),
+                region.getCodec() == null ? null : CacheCodecs.of(region.getCodec()));
+        return this;
+    }
+
+    public CacheRegion get(String name) {
+        CacheRegion region = regions.get(name);
+        if (region == null) {
+            throw new IllegalArgumentException("未注册的缓存区域: " + name);
+        }
+        return region;
+    }
+}
@@ -0,0 +1,46 @@
+package com.review.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 缓存统计：两级缓存命中、逻辑过期重建
+ * L1：进程内缓存；L2：Redis
+ */
+public class CacheStats {
+
+    private final LongAdder l1Hit = new LongAdder();
+    private final LongAdder l1Miss = new LongAdder();
+    private final LongAdder l2Hit = new LongAdder();
+    private final LongAdder l2Miss = new LongAdder();
+    private final LongAdder earlyRefresh = new LongAdder();
+    private final LongAdder expiredRebuild = new LongAdder();
+
+    public void recordL1(boolean hit) {
+        (hit ? l1Hit : l1Miss).increment();
+    }
+
+    public void recordL2(boolean hit) {
+        (hit ? l2Hit : l2Miss).increment();
+    }
+
+    /**
+     * 逻辑过期缓存的重建
+     * @param early true 为过期前的提前刷新，false 为已过期后的重建
+     */
+    public void recordRebuild(boolean early) {
+        (early ? earlyRefresh : expiredRebuild).increment();
+    }
+
+    public Map<String, Long> snapshot() {
+        Map<String, Long> map = new LinkedHashMap<>();
+        map.put("l1Hit", l1Hit.sum());
+        map.put("l1Miss", l1Miss.sum());
+        map.put("l2Hit", l2Hit.sum());
+        map.put("l2Miss", l2Miss.sum());
+        map.put("earlyRefresh", earlyRefresh.sum());
+        map.put("expiredRebuild", expiredRebuild.sum());
+        return map;
+    }
+}
@@ -0,0 +1,19 @@
+package com.review.utils;
+
+/**
+ * 缓存查询策略，对应 CacheClient 的三种查询方式
+ */
+public enum CacheStrategy {
+    /**
+     * 缓存穿透保护：布隆过滤器 + 空值缓存
+     */
+    PENETRATE_GUARD,
+    /**
+     * 缓存击穿保护：互斥锁重建
+     */
+    MUTEX,
+    /**
+     * 缓存击穿保护：逻辑过期，异步重建并返回旧数据
+     */
+    LOGICAL_EXPIRE
+}
@@ -0,0 +1,52 @@
+package com.review.utils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 缓存 TTL 随机抖动，按 key 前缀配置抖动比例
+ * 批量预热的 key 过期时间被打散，避免同一时刻集中过期（缓存雪崩）
+ */
+public class CacheTtlPolicy {
+
+    private final double defaultJitterRatio;
+
+    private final Map<String, Double> jitterRatios = new ConcurrentHashMap<>();
+
+    public CacheTtlPolicy(double defaultJitterRatio) {
+        this.defaultJitterRatio = defaultJitterRatio;
+    }
+
+    /**
+     * 设置某个 key 前缀的抖动比例
+     * @param keyPrefix key 前缀
+     * @param jitterRatio 抖动比例，实际 TTL 在 [ttl, ttl * (1 + jitterRatio)] 之间
+     */
+    public void setJitter(String keyPrefix, double jitterRatio) {
+        jitterRatios.put(keyPrefix, jitterRatio);
+    }
+
+    /**
+     * 计算加上随机抖动后的 TTL（毫秒），抖动只延长不缩短
+     */
+    public long jitteredMillis(String key, long time, TimeUnit unit) {
+        long ttl = unit.toMillis(time);
+        long maxJitter = (long) (ttl * jitterRatioOf(key));
+        return maxJitter <= 0 ? ttl : ttl + ThreadLocalRandom.current().nextLong(maxJitter + 1);
+    }
+
+    /**
+     * 按最长匹配的 key 前缀取抖动比例，未配置时使用默认值
+     */
+    private double jitterRatioOf(String key) {
+        String matched = null;
+        for (String prefix : jitterRatios.keySet()) {
+            if (key.startsWith(prefix) && (matched == null || prefix.length() > matched.length())) {
+                matched = prefix;
+            }
+        }
+        return matched == null ? defaultJitterRatio : jitterRatios.get(matched);
+    }
+}
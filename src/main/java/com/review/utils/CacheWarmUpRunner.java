@@ -0,0 +1,211 @@
+package com.review.utils;
+
+import com.review.entity.SeckillVoucher;
+import com.review.entity.Shop;
+import com.review.service.ISeckillVoucherService;
+import com.review.service.IShopService;
+import com.review.service.IShopTypeService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.review.utils.RedisConstants.*;
+
+/**
+ * 启动预热：店铺缓存（逻辑过期格式）、店铺 GEO 索引与排序索引、店铺类型、进行中秒杀券的库存
+ * 按主键分页读取 MySQL，管道批量写入 Redis，多个预热任务并行执行；完成前由 WarmUpInterceptor 拒绝业务请求
+ * run 同步执行，Spring Boot 在所有 ApplicationRunner 结束后才把就绪状态切换为 ACCEPTING_TRAFFIC
+ */
+@Slf4j
+@Component
+public class CacheWarmUpRunner implements ApplicationRunner {
+
+    @Resource
+    private IShopService shopService;
+    @Resource
+    private IShopTypeService shopTypeService;
+    @Resource
+    private ISeckillVoucherService seckillVoucherService;
+    @Resource
+    private CacheClient cacheClient;
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+    @Resource
+    private ShopSortIndex shopSortIndex;
+    @Resource
+    private SeckillStock seckillStock;
+    @Resource
+    private ShopGeoLoader shopGeoLoader;
+
+    @Value("${cache.warm-up.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 预热的店铺缓存记录的重建耗时（毫秒），用于提前刷新（XFetch），避免预热的 key 在同一时刻集中过期
+     */
+    @Value("${cache.warm-up.rebuild-cost:" + CACHE_WARM_UP_REBUILD_COST + "}")
+    private long rebuildCost;
+
+    private volatile boolean ready = false;
+
+    /**
+     * 预热进度：任务名 -> 已完成数量 / 总数
+     */
+    private final Map<String, AtomicLong> done = new ConcurrentHashMap<>();
+    private final Map<String, Long> totals = new ConcurrentHashMap<>();
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            ready = true;
+            return;
+        }
+        long begin = System.currentTimeMillis();
+        // 任务线程负责分页读库，写入线程负责管道写 Redis；写入队列满时由读库线程自己写，限制同时在途的批次
+        ExecutorService taskExecutor = Executors.newFixedThreadPool(3);
+        ThreadPoolExecutor writeExecutor = new ThreadPoolExecutor(
+                SystemConstants.WARM_UP_THREADS, SystemConstants.WARM_UP_THREADS, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(SystemConstants.WARM_UP_THREADS), new ThreadPoolExecutor.CallerRunsPolicy());
+        try {
+            CompletableFuture.allOf(
+                    CompletableFuture.runAsync(() -> warmUpShops(writeExecutor), taskExecutor),
+                    CompletableFuture.runAsync(this::warmUpShopTypes, taskExecutor),
+                    CompletableFuture.runAsync(() -> warmUpSeckillStock(writeExecutor), taskExecutor)
+            ).join();
+            writeExecutor.shutdown();
+            writeExecutor.awaitTermination(1, TimeUnit.MINUTES);
+            log.info("缓存预热完成，耗时 {} ms，{}", System.currentTimeMillis() - begin, getProgress());
+        } catch (Exception e) {
+            // 预热失败不阻止启动，未预热的数据在首次访问时加载
+            log.error("缓存预热失败，{}", getProgress(), e);
+        } finally {
+            taskExecutor.shutdownNow();
+            writeExecutor.shutdownNow();
+            ready = true;
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public Map<String, String> getProgress() {
+        Map<String, String> progress = new LinkedHashMap<>();
+        done.forEach((task, count) -> progress.put(task, count.get() + "/" + totals.getOrDefault(task, 0L)));
+        return progress;
+    }
+
+    /**
+     * 店铺缓存、GEO 索引与排序索引
+     */
+    private void warmUpShops(ExecutorService writeExecutor) {
+        startTask("shop", shopService.count());
+        List<CompletableFuture<Void>> writes = forEachPage(shopService::queryShopsAfter, Shop::getId, (shops, loadMillis) ->
+                CompletableFuture.runAsync(() -> {
+                    Map<Long, Shop> shopMap = shops.stream().collect(Collectors.toMap(Shop::getId, shop -> shop));
+                    // 分页查库耗时按条数均摊，小于配置值时取配置值
+                    long cost = Math.max(rebuildCost, loadMillis / shops.size());
+                    cacheClient.setBatchWithLogicalExpire(CACHE_SHOP_KEY, shopMap, CACHE_SHOP_TTL, TimeUnit.MINUTES, cost);
+                    // 经 ShopGeoLoader 写入，GEO 索引重建期间同时写入影子 key，替换后不会丢失
+                    shopGeoLoader.saveAll(shops);
+                    shopSortIndex.addAll(shops);
+                    progress("shop", shops.size());
+                }, writeExecutor));
+        CompletableFuture.allOf(writes.toArray(new CompletableFuture[0])).join();
+    }
+
+    /**
+     * 店铺类型，缓存不存在时 queryAll 会从数据库加载并写入
+     */
+    private void warmUpShopTypes() {
+        startTask("shopType", 1);
+        shopTypeService.queryAll();
+        progress("shopType", 1);
+    }
+
+    /**
+     * 进行中秒杀券的库存
+     * 只在 key 不存在时写入（SETNX），已在 Redis 中扣减、尚未同步到数据库的库存不会被覆盖
+     * 分片之前的旧 key 先迁移到新 key，存在旧 key 的券不再用数据库中的库存初始化
+     */
+    private void warmUpSeckillStock(ExecutorService writeExecutor) {
+        LocalDateTime now = LocalDateTime.now();
+        startTask("seckillStock", seckillVoucherService.query().gt("end_time", now).count());
+        List<CompletableFuture<Void>> writes = forEachPage(lastId -> seckillVoucherService.query()
+                        .gt("end_time", now)
+                        .gt("voucher_id", lastId)
+                        .orderByAsc("voucher_id")
+                        .last("LIMIT " + SystemConstants.DB_BATCH_SIZE)
+                        .list(),
+                SeckillVoucher::getVoucherId, (vouchers, loadMillis) -> CompletableFuture.runAsync(() -> {
+                    // 先迁移旧 key、确定每张券的库存 key（可能需要访问 Redis 读取分片），再管道写入
+                    Map<String, String> stocks = new HashMap<>();
+                    for (SeckillVoucher voucher : vouchers) {
+                        if (!seckillStock.migrateLegacy(voucher.getVoucherId())) {
+                            stocks.putAll(seckillStock.split(voucher.getVoucherId(), voucher.getStock()));
+                        }
+                    }
+                    stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                        StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                        stocks.forEach(stringConnection::setNX);
+                        return null;
+                    });
+                    progress("seckillStock", vouchers.size());
+                }, writeExecutor));
+        CompletableFuture.allOf(writes.toArray(new CompletableFuture[0])).join();
+    }
+
+    /**
+     * 按主键分页读取，每页交给 writer 处理
+     * @param pager 入参为上一页最大 id，返回下一页数据，为空表示读取完毕
+     * @param writer 入参为本页数据与读取本页的耗时（毫秒）
+     */
+    private <T> List<CompletableFuture<Void>> forEachPage(Function<Long, List<T>> pager, Function<T, Long> idGetter,
+                                                         BiFunction<List<T>, Long, CompletableFuture<Void>> writer) {
+        List<CompletableFuture<Void>> writes = new ArrayList<>();
+        long lastId = 0;
+        while (true) {
+            long begin = System.currentTimeMillis();
+            List<T> page = pager.apply(lastId);
+            if (page == null || page.isEmpty()) {
+                return writes;
+            }
+            writes.add(writer.apply(page, System.currentTimeMillis() - begin));
+            lastId = idGetter.apply(page.get(page.size() - 1));
+        }
+    }
+
+    private void startTask(String task, long total) {
+        totals.put(task, total);
+        done.put(task, new AtomicLong());
+    }
+
+    private void progress(String task, int count) {
+        long finished = done.get(task).addAndGet(count);
+        log.info("缓存预热 {}: {}/{}", task, finished, totals.get(task));
+    }
+}
@@ -0,0 +1,23 @@
+package com.review.utils;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 声明式缓存：方法的第一个参数作为 id，key 为区域前缀 + id，返回值（可为泛型类型）按区域配置缓存
+ * 方法返回 null 表示数据不存在，会缓存空值
+ * 通过 Spring 代理生效，同一个类内部调用需要经注入的代理对象
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Cached {
+
+    /**
+     * 缓存区域名称，见 CacheRegionRegistry
+     */
+    String region();
+
+    CacheStrategy strategy() default CacheStrategy.PENETRATE_GUARD;
+}
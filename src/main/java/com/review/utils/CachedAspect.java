@@ -0,0 +1,54 @@
+package com.review.utils;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.lang.reflect.Type;
+import java.util.function.Function;
+
+/**
+ * 处理 @Cached：按区域配置选择 CacheClient 的查询策略，未命中时执行原方法
+ */
+@Aspect
+@Component
+public class CachedAspect {
+
+    @Resource
+    private CacheClient cacheClient;
+    @Resource
+    private CacheRegionRegistry cacheRegionRegistry;
+
+    @Around("@annotation(cached)")
+    public Object around(ProceedingJoinPoint joinPoint, Cached cached) {
+        CacheRegion region = cacheRegionRegistry.get(cached.region());
+        Object id = joinPoint.getArgs()[0];
+        Type type = ((MethodSignature) joinPoint.getSignature()).getMethod().getGenericReturnType();
+        // 逻辑过期的重建在其他线程执行，proceed 每次都会复制调用链，可以重复、跨线程调用
+        Function<Object, Object> dbFallback = arg -> proceed(joinPoint);
+        switch (cached.strategy()) {
+            case MUTEX:
+                return cacheClient.queryWithMutex(
+                        region.getKeyPrefix(), id, type, dbFallback, region.getTtl(), region.getUnit());
+            case LOGICAL_EXPIRE:
+                return cacheClient.queryWithLogicalExpire(
+                        region.getKeyPrefix(), id, type, dbFallback, region.getTtl(), region.getUnit());
+            default:
+                return cacheClient.queryWithPenetrateGuard(
+                        region.getKeyPrefix(), id, type, dbFallback, region.getTtl(), region.getUnit());
+        }
+    }
+
+    private Object proceed(ProceedingJoinPoint joinPoint) {
+        try {
+            return joinPoint.proceed();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
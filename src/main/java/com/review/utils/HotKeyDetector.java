@@ -0,0 +1,134 @@
+package com.review.utils;
+
+import cn.hutool.core.lang.hash.MurmurHash;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * 热点 key 探测：Count-Min Sketch 统计每个 key 的访问频率
+ * 每个时间窗口结束时所有计数减半（衰减），估计值超过阈值的 key 标记为热点，降到阈值一半以下时取消
+ */
+public class HotKeyDetector {
+
+    private final int width;
+
+    private final AtomicLongArray[] rows;
+
+    private final long threshold;
+
+    private final long windowMillis;
+
+    private final int maxHotKeys;
+
+    private final AtomicLong windowStart = new AtomicLong(System.currentTimeMillis());
+
+    /**
+     * 当前热点 key -> 最近一次估计的访问次数
+     */
+    private final Map<String, Long> hotKeys = new ConcurrentHashMap<>();
+
+    /**
+     * 热点 key 降级时的回调
+     */
+    private final Consumer<String> onDemote;
+
+    public HotKeyDetector(int depth, int width, long threshold, long windowMillis, int maxHotKeys, Consumer<String> onDemote) {
+        this.width = width;
+        this.rows = new AtomicLongArray[depth];
+        for (int i = 0; i < depth; i++) {
+            rows[i] = new AtomicLongArray(width);
+        }
+        this.threshold = threshold;
+        this.windowMillis = windowMillis;
+        this.maxHotKeys = maxHotKeys;
+        this.onDemote = onDemote;
+    }
+
+    /**
+     * 记录一次访问
+     * @param key 缓存 key
+     * @return 该 key 当前是否为热点
+     */
+    public boolean record(String key) {
+        decayIfNeeded();
+        long[] hash = MurmurHash.hash128(key);
+        long estimate = Long.MAX_VALUE;
+        for (int i = 0; i < rows.length; i++) {
+            estimate = Math.min(estimate, rows[i].incrementAndGet(index(hash, i)));
+        }
+        if (estimate >= threshold) {
+            if (hotKeys.size() < maxHotKeys || hotKeys.containsKey(key)) {
+                hotKeys.put(key, estimate);
+                return true;
+            }
+            return false;
+        }
+        return hotKeys.containsKey(key);
+    }
+
+    public boolean isHot(String key) {
+        return hotKeys.containsKey(key);
+    }
+
+    /**
+     * 当前热点 key，按访问次数降序
+     */
+    public Map<String, Long> getHotKeys() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        hotKeys.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
+                .forEach(e -> result.put(e.getKey(), e.getValue()));
+        return result;
+    }
+
+    public long estimate(String key) {
+        long[] hash = MurmurHash.hash128(key);
+        long estimate = Long.MAX_VALUE;
+        for (int i = 0; i < rows.length; i++) {
+            estimate = Math.min(estimate, rows[i].get(index(hash, i)));
+        }
+        return estimate;
+    }
+
+    /**
+     * 窗口结束时计数减半，并降级已经冷却的热点 key
+     * 只有抢到 CAS 的线程执行衰减，衰减期间的并发计数可能有少量误差，不影响热点判断
+     */
+    private void decayIfNeeded() {
+        long start = windowStart.get();
+        long now = System.currentTimeMillis();
+        if (now - start < windowMillis || !windowStart.compareAndSet(start, now)) {
+            return;
+        }
+        for (AtomicLongArray row : rows) {
+            for (int i = 0; i < width; i++) {
+                long v = row.get(i);
+                if (v > 0) {
+                    row.accumulateAndGet(i, 0, (a, b) -> a >>> 1);
+                }
+            }
+        }
+        for (String key : hotKeys.keySet()) {
+            long estimate = estimate(key);
+            if (estimate < threshold / 2) {
+                hotKeys.remove(key);
+                onDemote.accept(key);
+            } else {
+                hotKeys.put(key, estimate);
+            }
+        }
+    }
+
+    /**
+     * 双重哈希计算第 i 行的下标：h1 + i * h2
+     */
+    private int index(long[] hash, int i) {
+        return (int) Math.floorMod(hash[0] + i * hash[1], (long) width);
+    }
+}
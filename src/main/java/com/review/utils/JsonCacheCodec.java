@@ -0,0 +1,51 @@
+package com.review.utils;
+
+import cn.hutool.core.convert.Convert;
+import cn.hutool.json.JSON;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * JSON 序列化（默认），逻辑过期缓存沿用 {@link RedisData} 的格式
+ */
+public class JsonCacheCodec implements CacheCodec {
+
+    public static final JsonCacheCodec INSTANCE = new JsonCacheCodec();
+
+    @Override
+    public byte[] encode(Object value) {
+        return JSONUtil.toJsonStr(value).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public <R> R decode(byte[] bytes, Type type) {
+        return JSONUtil.toBean(new String(bytes, StandardCharsets.UTF_8), type, false);
+    }
+
+    @Override
+    public byte[] encodeLogical(Object value, long expireAt, long rebuildCost) {
+        RedisData redisData = new RedisData();
+        redisData.setData(value);
+        redisData.setExpireTime(LocalDateTime.ofInstant(Instant.ofEpochMilli(expireAt), ZoneId.systemDefault()));
+        redisData.setRebuildCost(rebuildCost);
+        return encode(redisData);
+    }
+
+    @Override
+    public CacheEnvelope decodeLogical(byte[] bytes) {
+        // 只解析一次，data 直接由 JSONObject 转为对象，不再 toString 后二次解析
+        JSONObject json = JSONUtil.parseObj(new String(bytes, StandardCharsets.UTF_8));
+        LocalDateTime expireTime = json.get("expireTime", LocalDateTime.class);
+        long expireAt = expireTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        Long rebuildCost = json.getLong("rebuildCost");
+        Object data = json.get("data");
+        return new CacheEnvelope(expireAt, rebuildCost == null ? 0L : rebuildCost,
+                type -> data instanceof JSON ? ((JSON) data).toBean(type) : Convert.convert(type, data));
+    }
+}
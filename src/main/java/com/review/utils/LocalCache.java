@@ -0,0 +1,132 @@
+package com.review.utils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 进程内一级缓存（L1）
+ * 容量上限 + 写入后固定 TTL，超出容量时按近似 LRU 淘汰最久未访问的 key
+ * 读写不加全局锁：每个条目只记录最近访问时间，超出容量时由一个线程批量淘汰到容量的 90%
+ */
+public class LocalCache {
+
+    /**
+     * 每次淘汰后保留的容量比例，避免每次写入都触发淘汰
+     */
+    private static final double EVICT_RETAIN_RATIO = 0.9;
+
+    private final int maxSize;
+    private final long ttlMillis;
+
+    private final LongAdder evictions = new LongAdder();
+
+    private final ConcurrentHashMap<String, Entry> map = new ConcurrentHashMap<>();
+
+    private final ReentrantLock evictLock = new ReentrantLock();
+
+    public LocalCache(int maxSize, long ttlMillis) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * 获取缓存，过期则顺带删除
+     * @param key 缓存 key
+     * @return 缓存值，不存在或已过期返回 null
+     */
+    public Object get(String key) {
+        Entry entry = map.get(key);
+        if (entry == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (entry.expireAt <= now) {
+            map.remove(key, entry);
+            return null;
+        }
+        // 同一毫秒内的重复访问不再写，减少热点 key 的缓存行争用
+        if (entry.accessedAt != now) {
+            entry.accessedAt = now;
+        }
+        return entry.value;
+    }
+
+    public void put(String key, Object value) {
+        put(key, value, ttlMillis);
+    }
+
+    public void put(String key, Object value, long ttlMillis) {
+        if (value == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        map.put(key, new Entry(value, now + ttlMillis, now));
+        // 只有一个线程执行淘汰，其余线程不等待
+        if (map.size() > maxSize && evictLock.tryLock()) {
+            try {
+                evict();
+            } finally {
+                evictLock.unlock();
+            }
+        }
+    }
+
+    public void invalidate(String key) {
+        map.remove(key);
+    }
+
+    public void clear() {
+        map.clear();
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * 先删除已过期的条目，仍超出容量时按最近访问时间淘汰最旧的条目
+     */
+    private void evict() {
+        long now = System.currentTimeMillis();
+        List<Map.Entry<String, Entry>> live = new ArrayList<>(map.size());
+        for (Map.Entry<String, Entry> e : map.entrySet()) {
+            if (e.getValue().expireAt <= now) {
+                map.remove(e.getKey(), e.getValue());
+            } else {
+                live.add(e);
+            }
+        }
+        int excess = live.size() - (int) (maxSize * EVICT_RETAIN_RATIO);
+        if (excess <= 0) {
+            return;
+        }
+        live.sort(Comparator.comparingLong(e -> e.getValue().accessedAt));
+        for (int i = 0; i < excess; i++) {
+            Map.Entry<String, Entry> e = live.get(i);
+            if (map.remove(e.getKey(), e.getValue())) {
+                evictions.increment();
+            }
+        }
+    }
+
+    private static class Entry {
+        private final Object value;
+        private final long expireAt;
+        private volatile long accessedAt;
+
+        private Entry(Object value, long expireAt, long accessedAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+            this.accessedAt = accessedAt;
+        }
+    }
+}
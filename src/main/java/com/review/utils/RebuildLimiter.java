@@ -0,0 +1,99 @@
+package com.review.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RAtomicLong;
+import org.redisson.api.RPermitExpirableSemaphore;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static com.review.utils.RedisConstants.CACHE_REBUILD_PERMITS_KEY;
+import static com.review.utils.RedisConstants.LOCK_SHOP_TTL;
+
+/**
+ * 缓存重建限流：按 key 前缀限制整个集群同时查库重建的数量
+ * 基于 Redisson 可过期信号量，节点宕机时许可在租期后自动归还
+ * 上次应用的上限记录在 Redis 中，配置变化后按差值增减许可，已存在的信号量也会生效
+ */
+@Slf4j
+@Component
+public class RebuildLimiter {
+
+    private final RedissonClient redissonClient;
+
+    private final int defaultMaxConcurrency;
+
+    private final Map<String, Integer> maxConcurrency = new ConcurrentHashMap<>();
+
+    private final Map<String, RPermitExpirableSemaphore> semaphores = new ConcurrentHashMap<>();
+
+    public RebuildLimiter(RedissonClient redissonClient,
+                          @Value("${cache.rebuild.max-concurrency:20}") int defaultMaxConcurrency) {
+        this.redissonClient = redissonClient;
+        this.defaultMaxConcurrency = defaultMaxConcurrency;
+    }
+
+    /**
+     * 设置某个 key 前缀的最大并发重建数，信号量已创建时立即生效
+     */
+    public void setMaxConcurrency(String keyPrefix, int permits) {
+        maxConcurrency.put(keyPrefix, permits);
+        RPermitExpirableSemaphore semaphore = semaphores.get(keyPrefix);
+        if (semaphore != null) {
+            applyPermits(keyPrefix, semaphore, permits);
+        }
+    }
+
+    /**
+     * 获取重建许可
+     * @param keyPrefix key 前缀
+     * @param waitMillis 最多排队等待的时间，0 表示不等待
+     * @return 许可 id，获取失败返回 null
+     */
+    public String tryAcquire(String keyPrefix, long waitMillis) {
+        try {
+            // 租期与互斥锁一致，持有者宕机时许可自动归还
+            return semaphoreOf(keyPrefix).tryAcquire(waitMillis, TimeUnit.SECONDS.toMillis(LOCK_SHOP_TTL), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    public void release(String keyPrefix, String permitId) {
+        if (permitId != null && !semaphoreOf(keyPrefix).tryRelease(permitId)) {
+            log.warn("重建许可 {} 已过期，前缀 {}", permitId, keyPrefix);
+        }
+    }
+
+    private RPermitExpirableSemaphore semaphoreOf(String keyPrefix) {
+        return semaphores.computeIfAbsent(keyPrefix, prefix -> {
+            RPermitExpirableSemaphore semaphore = redissonClient.getPermitExpirableSemaphore(CACHE_REBUILD_PERMITS_KEY + prefix);
+            applyPermits(prefix, semaphore, maxConcurrency.getOrDefault(prefix, defaultMaxConcurrency));
+            return semaphore;
+        });
+    }
+
+    /**
+     * 应用并发上限：信号量不存在时直接设置；已存在时与上次应用的上限比较，按差值增减许可
+     * 减少许可时可用数可能暂时为负，直到持有者归还
+     * GETSET 保证同一次调整只有一个节点执行
+     */
+    private void applyPermits(String keyPrefix, RPermitExpirableSemaphore semaphore, int permits) {
+        RAtomicLong applied = redissonClient.getAtomicLong(CACHE_REBUILD_PERMITS_KEY + keyPrefix + ":cap");
+        if (semaphore.trySetPermits(permits)) {
+            applied.set(permits);
+            return;
+        }
+        long previous = applied.getAndSet(permits);
+        // 没有记录（旧版本创建的信号量）时无法得知差值，只记录本次上限
+        if (previous > 0 && previous != permits) {
+            semaphore.addPermits((int) (permits - previous));
+            log.info("重建并发上限调整，前缀 {}：{} -> {}", keyPrefix, previous, permits);
+        }
+    }
+}
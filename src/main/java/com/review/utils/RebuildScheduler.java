@@ -0,0 +1,123 @@
+package com.review.utils;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.review.utils.SystemConstants.CACHE_REBUILD_QUEUE_CAPACITY;
+import static com.review.utils.SystemConstants.CACHE_REBUILD_THREADS;
+
+/**
+ * 缓存异步重建调度：所有异步重建共用一个线程池
+ * 同一 key 只保留一个在途任务；队列有上限，满时拒绝，由调用方继续返回旧数据；越热的 key 越先重建
+ */
+@Slf4j
+@Component
+public class RebuildScheduler {
+
+    public static final String TASKS = "cache.rebuild.tasks";
+
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * 在途（排队或执行中）的重建任务，key 为缓存 key
+     */
+    private final Map<String, Boolean> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final MeterRegistry meterRegistry;
+
+    public RebuildScheduler(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        // PriorityBlockingQueue 本身无界，容量由 queued 计数控制
+        this.executor = new ThreadPoolExecutor(CACHE_REBUILD_THREADS, CACHE_REBUILD_THREADS,
+                0L, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>());
+        Gauge.builder("cache.rebuild.queue", queued, AtomicInteger::get).register(meterRegistry);
+        Gauge.builder("cache.rebuild.active", executor, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+    }
+
+    /**
+     * 提交重建任务
+     * @param key 缓存 key，用于去重
+     * @param priority 优先级，一般为 key 的访问热度，越大越先执行
+     * @param task 重建逻辑，异常会被记录而不会丢失
+     * @return true 表示已提交；false 表示已有相同 key 的任务在途或队列已满，task 不会执行
+     */
+    public boolean submit(String key, long priority, Runnable task) {
+        if (inFlight.putIfAbsent(key, Boolean.TRUE) != null) {
+            recordOutcome("deduped");
+            return false;
+        }
+        if (queued.incrementAndGet() > CACHE_REBUILD_QUEUE_CAPACITY) {
+            queued.decrementAndGet();
+            inFlight.remove(key);
+            recordOutcome("rejected");
+            return false;
+        }
+        executor.execute(new RebuildTask(key, priority, sequence.getAndIncrement(), task));
+        return true;
+    }
+
+    public int getQueueDepth() {
+        return queued.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void recordOutcome(String outcome) {
+        meterRegistry.counter(TASKS, "outcome", outcome).increment();
+    }
+
+    private class RebuildTask implements Runnable, Comparable<RebuildTask> {
+        private final String key;
+        private final long priority;
+        private final long seq;
+        private final Runnable task;
+
+        private RebuildTask(String key, long priority, long seq, Runnable task) {
+            this.key = key;
+            this.priority = priority;
+            this.seq = seq;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            queued.decrementAndGet();
+            try {
+                task.run();
+                recordOutcome("success");
+            } catch (Exception e) {
+                log.error("缓存 {} 重建失败", key, e);
+                recordOutcome("failed");
+            } finally {
+                inFlight.remove(key);
+            }
+        }
+
+        /**
+         * 优先级高的在前，相同优先级按提交顺序
+         */
+        @Override
+        public int compareTo(RebuildTask o) {
+            int c = Long.compare(o.priority, priority);
+            return c != 0 ? c : Long.compare(seq, o.seq);
+        }
+    }
+}
@@ -11,14 +11,87 @@ public class RedisConstants {
     public static final Long CACHE_SHOP_TTL = 30L;
     public static final String CACHE_SHOP_KEY = "cache:shop:";
 
+    public static final Long CACHE_USER_TTL = 30L;
+    public static final String CACHE_USER_KEY = "cache:user:";
+    public static final Long CACHE_BLOG_TTL = 30L;
+    public static final String CACHE_BLOG_KEY = "cache:blog:";
+    public static final Long CACHE_VOUCHER_TTL = 2L;
+    public static final String CACHE_VOUCHER_KEY = "cache:voucher:shop:";
+
+    public static final String CACHE_INVALIDATE_CHANNEL = "cache:invalidate";
+    public static final int LOCAL_CACHE_MAX_SIZE = 1000;
+    public static final Long LOCAL_CACHE_TTL = 30L;
+
+    public static final int HOT_KEY_SKETCH_DEPTH = 4;
+    public static final int HOT_KEY_SKETCH_WIDTH = 4096;
+    public static final Long HOT_KEY_THRESHOLD = 500L;
+    public static final Long HOT_KEY_WINDOW = 10L;
+    public static final int HOT_KEY_MAX_SIZE = 100;
+    public static final Long HOT_KEY_LOCAL_TTL = 5L;
+
+    public static final String LOCK_KEY_PREFIX = "lock:";
     public static final String LOCK_SHOP_KEY = "lock:shop:";
     public static final Long LOCK_SHOP_TTL = 10L;
+    public static final Long LOCK_WAIT_MILLIS = 1000L;
+
+    public static final double XFETCH_BETA = 1.0;
+    /**
+     * 预热写入的逻辑过期缓存没有实际的重建耗时，按单条查库耗时估计（毫秒），实测值更大时取实测值
+     */
+    public static final long CACHE_WARM_UP_REBUILD_COST = 20L;
+
+    public static final double CACHE_TTL_JITTER_RATIO = 0.1;
+    public static final double CACHE_SHOP_TTL_JITTER_RATIO = 0.3;
+    public static final String CACHE_REBUILD_PERMITS_KEY = "cache:rebuild:permits:";
+    public static final int CACHE_SHOP_REBUILD_PERMITS = 10;
 
     public static final String SECKILL_STOCK_KEY = "seckill:stock:";
+    public static final String SECKILL_ORDER_KEY = "seckill:order:";
+    public static final String SECKILL_SHARD_KEY = "seckill:shard";
+    public static final String SECKILL_BUCKETS_KEY = "seckill:buckets";
+    public static final String SECKILL_SOLD_OUT_CHANNEL = "seckill:sold-out";
+    public static final String SECKILL_RESTOCK_CHANNEL = "seckill:restock";
+    public static final String SECKILL_RESTOCK_VERSION_KEY = "seckill:restock:version:";
+    public static final Long SECKILL_SOLD_OUT_TTL = 60L;
+    public static final String SECKILL_ORDER_STREAM = "stream.orders";
+    public static final String SECKILL_ORDER_GROUP = "g1";
+    public static final long SECKILL_ORDER_CLAIM_INTERVAL_MILLIS = 30000L;
+    public static final long SECKILL_ORDER_POLL_MILLIS = 100L;
+    public static final long SECKILL_ORDER_CLAIM_IDLE_MILLIS = 60000L;
+    public static final int SECKILL_ORDER_LAG_SCAN_LIMIT = 10000;
+    public static final long SECKILL_ORDER_MAX_DELIVERIES = 5L;
+    public static final String SECKILL_ORDER_DEAD_LETTER_SUFFIX = ":dead";
     public static final String BLOG_LIKED_KEY = "blog:liked:";
     public static final String FEED_KEY = "feed:";
+    /**
+     * 店铺 GEO 索引 key 为 shop:geo:{typeId}，影子 key 为 shop:geo:{typeId}:rebuild，见 ShopGeoLoader.geoKey
+     */
     public static final String SHOP_GEO_KEY = "shop:geo:";
+    public static final String SHOP_GEO_REBUILD_SUFFIX = ":rebuild";
+    public static final String SHOP_GEO_REBUILDING_KEY = "shop:geo:rebuilding";
+    public static final Long SHOP_GEO_REBUILD_TTL = 30L;
+    public static final String SHOP_GEO_RELOAD_LOCK = "lock:shop:geo:reload";
+    public static final String SHOP_GEO_CURSOR_KEY = "shop:geo:cursor:";
+    public static final Long SHOP_GEO_CURSOR_TTL = 5L;
+    public static final int SHOP_GEO_CURSOR_MAX_SIZE = 500;
+    public static final double SHOP_GEO_RADIUS = 5000;
+    public static final double SHOP_GEO_CELL_DEGREES = 0.01;
+    public static final String SHOP_GEO_CHANGED_CHANNEL = "shop:geo:changed";
+    public static final String SHOP_SORT_KEY = "shop:sort:";
+    public static final String SHOP_NAME_CHANGED_CHANNEL = "shop:name:changed";
     public static final String USER_SIGN_KEY = "sign:";
 
     public static final String CACHE_SHOP_TYPE = "cache:shop:type";
+    public static final String CACHE_SHOP_TYPE_VERSION = "cache:shop:type:version";
+    public static final Long SHOP_TYPE_VERSION_CHECK_MILLIS = 1000L;
+
+    public static final String BLOOM_KEY_PREFIX = "bloom:";
+    public static final String BLOOM_ADD_CHANNEL = "bloom:add";
+    public static final String BLOOM_RELOAD_CHANNEL = "bloom:reload";
+    public static final String BLOOM_REBUILD_LOCK = "lock:bloom:rebuild:";
+    public static final long BLOOM_READY_CHECK_INTERVAL_MILLIS = 1000L;
+    public static final Long BLOOM_DRIFT_MIN_SAMPLES = 1000L;
+    public static final double BLOOM_DRIFT_FACTOR = 2.0;
+    public static final Long SHOP_BLOOM_EXPECTED_INSERTIONS = 100000L;
+    public static final double SHOP_BLOOM_FPP = 0.01;
 }
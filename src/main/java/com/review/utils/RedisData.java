@@ -7,5 +7,9 @@ import java.time.LocalDateTime;
 @Data
 public class RedisData {
     private LocalDateTime expireTime;
+    /**
+     * 重建耗时（毫秒），用于提前刷新
+     */
+    private Long rebuildCost;
     private Object data;
 }
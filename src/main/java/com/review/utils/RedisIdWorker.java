@@ -1,12 +1,28 @@
 package com.review.utils;
 
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Component;
 
-import java.time.LocalDateTime;
-import java.time.ZoneOffset;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.zone.ZoneOffsetTransition;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * 全局唯一 id：31 位秒级时间戳 + 32 位按天自增的序列号
+ * 号段模式下每次用 INCRBY 预占一段序列号，本地原子递增发放，并在用掉大部分后异步预取下一段
+ */
+@Slf4j
 @Component
 public class RedisIdWorker {
 
@@ -18,27 +34,179 @@ public class RedisIdWorker {
      * 序列号的位数
      */
     private static final int COUNT_BITS = 32;
+    /**
+     * 号段剩余比例低于该值时预取下一段
+     */
+    private static final double PREFETCH_RATIO = 0.2;
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy:MM:dd");
 
     private final StringRedisTemplate stringRedisTemplate;
 
-    public RedisIdWorker(StringRedisTemplate stringRedisTemplate) {
+    private final boolean segmentEnabled;
+
+    private final int segmentStep;
+
+    private final Map<String, SegmentBuffer> buffers = new ConcurrentHashMap<>();
+
+    private final ExecutorService ID_SEGMENT_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    /**
+     * 当前所在的一天，日期与时区偏移在这段时间内不变
+     */
+    private volatile Day today = Day.of(System.currentTimeMillis());
+
+    public RedisIdWorker(StringRedisTemplate stringRedisTemplate,
+                         @Value("${id.segment.enabled:false}") boolean segmentEnabled,
+                         @Value("${id.segment.step:1000}") int segmentStep) {
         this.stringRedisTemplate = stringRedisTemplate;
+        this.segmentEnabled = segmentEnabled;
+        this.segmentStep = Math.max(1, segmentStep);
     }
 
     public long nextId(String keyPrefix) {
-        // 1. 生成时间戳
-        LocalDateTime now = LocalDateTime.now();
-        long nowEpochSecond = now.toEpochSecond(ZoneOffset.UTC);
-        long timeStamp = nowEpochSecond - BEGIN_TIMESTAMP;
+        // 1. 生成时间戳，与 LocalDateTime.now().toEpochSecond(UTC) 一致
+        long millis = System.currentTimeMillis();
+        Day day = dayOf(millis);
+        long timeStamp = Math.floorDiv(millis, 1000L) + day.offsetSeconds - BEGIN_TIMESTAMP;
 
-        // 2. 生成序列号
-        // 2.1. 获取当前日期，精确到天
-        String date = now.format(DateTimeFormatter.ofPattern("yyyy:MM:dd"));
-        // 2.2. 自增长
-        long count = stringRedisTemplate.opsForValue().increment("icr:" + keyPrefix + ":" + date);
+        // 2. 生成序列号，按天自增
+        long count = segmentEnabled
+                ? buffers.computeIfAbsent(keyPrefix, SegmentBuffer::new).nextCount(day.date)
+                : stringRedisTemplate.opsForValue().increment(counterKey(keyPrefix, day.date));
 
         // 3. 拼接并返回
         return timeStamp << COUNT_BITS | count;
     }
 
+    private static String counterKey(String keyPrefix, String date) {
+        return "icr:" + keyPrefix + ":" + date;
+    }
+
+    private Day dayOf(long millis) {
+        Day day = today;
+        if (millis >= day.startMillis && millis < day.endMillis) {
+            return day;
+        }
+        day = Day.of(millis);
+        today = day;
+        return day;
+    }
+
+    /**
+     * 一天（或一天中两次时区偏移变化之间）的时间区间
+     */
+    private static class Day {
+        private final String date;
+        private final long offsetSeconds;
+        private final long startMillis;
+        private final long endMillis;
+
+        private Day(String date, long offsetSeconds, long startMillis, long endMillis) {
+            this.date = date;
+            this.offsetSeconds = offsetSeconds;
+            this.startMillis = startMillis;
+            this.endMillis = endMillis;
+        }
+
+        private static Day of(long millis) {
+            ZoneId zone = ZoneId.systemDefault();
+            Instant instant = Instant.ofEpochMilli(millis);
+            ZonedDateTime now = instant.atZone(zone);
+            LocalDate date = now.toLocalDate();
+            long start = date.atStartOfDay(zone).toInstant().toEpochMilli();
+            long end = date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+            // 夏令时等偏移变化时截断区间
+            ZoneOffsetTransition previous = zone.getRules().previousTransition(instant.plusMillis(1));
+            if (previous != null) {
+                start = Math.max(start, previous.getInstant().toEpochMilli());
+            }
+            ZoneOffsetTransition next = zone.getRules().nextTransition(instant);
+            if (next != null) {
+                end = Math.min(end, next.getInstant().toEpochMilli());
+            }
+            return new Day(date.format(DATE_FORMATTER), now.getOffset().getTotalSeconds(), start, end);
+        }
+    }
+
+    /**
+     * 一段预占的序列号 [next, end)
+     */
+    private static class Segment {
+        private final String date;
+        private final AtomicLong next;
+        private final long end;
+        private final long prefetchAt;
+
+        private Segment(String date, long start, long end, long prefetchAt) {
+            this.date = date;
+            this.next = new AtomicLong(start);
+            this.end = end;
+            this.prefetchAt = prefetchAt;
+        }
+    }
+
+    /**
+     * 双缓冲：当前号段 + 异步预取的下一段
+     */
+    private class SegmentBuffer {
+        private final String keyPrefix;
+        private volatile Segment current;
+        private volatile CompletableFuture<Segment> prefetching;
+
+        private SegmentBuffer(String keyPrefix) {
+            this.keyPrefix = keyPrefix;
+        }
+
+        private long nextCount(String date) {
+            while (true) {
+                Segment segment = current;
+                if (segment != null && segment.date.equals(date)) {
+                    long count = segment.next.getAndIncrement();
+                    if (count < segment.end) {
+                        // 只有取到预取位置的线程触发一次预取
+                        if (count == segment.prefetchAt) {
+                            prefetching = CompletableFuture.supplyAsync(() -> fetch(date), ID_SEGMENT_EXECUTOR);
+                        }
+                        return count;
+                    }
+                }
+                switchSegment(date);
+            }
+        }
+
+        /**
+         * 当前号段用完或已跨天时切换到下一段，优先使用预取的号段
+         */
+        private synchronized void switchSegment(String date) {
+            Segment segment = current;
+            if (segment != null && segment.date.equals(date) && segment.next.get() < segment.end) {
+                // 其他线程已完成切换
+                return;
+            }
+            Segment next = null;
+            CompletableFuture<Segment> future = prefetching;
+            prefetching = null;
+            if (future != null) {
+                try {
+                    next = future.join();
+                } catch (Exception e) {
+                    log.error("预取 id 号段失败，前缀 {}", keyPrefix, e);
+                }
+            }
+            // 跨天的预取结果作废；同一天的号段必须在当前号段之后，保证 id 单调递增
+            if (next == null || !next.date.equals(date)
+                    || (segment != null && segment.date.equals(date) && next.next.get() < segment.end)) {
+                next = fetch(date);
+            }
+            current = next;
+        }
+
+        private Segment fetch(String date) {
+            Long end = stringRedisTemplate.opsForValue().increment(counterKey(keyPrefix, date), segmentStep);
+            long start = end - segmentStep + 1;
+            long prefetchAt = Math.max(start, end + 1 - Math.max(1, (long) (segmentStep * PREFETCH_RATIO)));
+            return new Segment(date, start, end + 1, prefetchAt);
+        }
+    }
 }
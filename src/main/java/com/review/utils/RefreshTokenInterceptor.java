@@ -3,14 +3,14 @@ package com.review.utils;
 import cn.hutool.core.bean.BeanUtil;
 import com.review.dto.UserDTO;
 import org.springframework.data.redis.core.StringRedisTemplate;
-import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
-public class RefreshTokenInterceptor implements HandlerInterceptor {
+public class RefreshTokenInterceptor implements AsyncHandlerInterceptor {
 
     private StringRedisTemplate stringRedisTemplate;
 
@@ -52,4 +52,13 @@ public class RefreshTokenInterceptor implements HandlerInterceptor {
         UserHolder.removeUser();
     }
 
+    /**
+     * 异步处理的请求（如返回 CompletableFuture）不会在当前线程调用 afterCompletion，这里清除用户，
+     * 避免该 Tomcat 线程处理的下一个请求沿用上一个用户；异步结果分派时会重新执行 preHandle
+     */
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        UserHolder.removeUser();
+    }
+
 }
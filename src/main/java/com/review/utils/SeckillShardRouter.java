@@ -0,0 +1,167 @@
+package com.review.utils;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.review.utils.RedisConstants.*;
+
+/**
+ * 秒杀分片路由：订单消息分散到多个 stream 分片
+ * 同一张券的库存、已购用户集合与所在分片的 stream 使用相同的 hash tag {分片号}，
+ * 在 Redis Cluster 中位于同一个 slot，秒杀脚本只操作单个 slot
+ * 券首次使用时按 voucherId % 分片数 分配分片，并持久化到 SECKILL_SHARD_KEY；之后修改分片数只影响新券，
+ * 已分配的券及其 stream 中未确认的消息不受影响
+ * 库存分段的券，第 b 段位于 (券所在分片 + b) % 分配时的分片数，各段分散在不同的 slot
+ * 分片之前的券使用 seckill:stock:<id> / seckill:order:<id>，由 SeckillStock.migrateLegacy 迁移到新的 key
+ */
+@Component
+public class SeckillShardRouter {
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final int shardCount;
+
+    /**
+     * 券 id -> 分片号，分配后不再变化，可在本地缓存
+     */
+    private final Map<Long, Integer> shards = new ConcurrentHashMap<>();
+
+    /**
+     * 券 id -> [分段数, 分配时的分片数]，未分段的券为 [1, 1]
+     */
+    private final Map<Long, int[]> buckets = new ConcurrentHashMap<>();
+
+    public SeckillShardRouter(StringRedisTemplate stringRedisTemplate,
+                              @Value("${seckill.order.shards:4}") int shardCount) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.shardCount = shardCount;
+    }
+
+    /**
+     * 券所在的分片，未分配时按当前分片数分配
+     */
+    public int shardOf(Long voucherId) {
+        return shards.computeIfAbsent(voucherId, id -> {
+            String field = id.toString();
+            // HSETNX 保证多个节点对同一张券的分配结果一致
+            stringRedisTemplate.opsForHash().putIfAbsent(SECKILL_SHARD_KEY, field, String.valueOf(id % shardCount));
+            Object shard = stringRedisTemplate.opsForHash().get(SECKILL_SHARD_KEY, field);
+            return Integer.parseInt(shard.toString());
+        });
+    }
+
+    /**
+     * 需要消费的所有分片：当前分片数内的分片，以及已分配给券的分片（分片数调小之前分配的）
+     */
+    public Set<Integer> activeShards() {
+        Set<Integer> active = new TreeSet<>();
+        for (int i = 0; i < shardCount; i++) {
+            active.add(i);
+        }
+        for (Object shard : stringRedisTemplate.opsForHash().values(SECKILL_SHARD_KEY)) {
+            active.add(Integer.parseInt(shard.toString()));
+        }
+        // 分段的券分布在分配时的所有分片上
+        for (Object value : stringRedisTemplate.opsForHash().values(SECKILL_BUCKETS_KEY)) {
+            int[] config = parseBuckets(value.toString());
+            for (int i = 0; i < config[1]; i++) {
+                active.add(i);
+            }
+        }
+        return active;
+    }
+
+    /**
+     * 设置券的库存分段数，需在写入库存之前设置
+     */
+    public void assignBuckets(Long voucherId, int bucketCount) {
+        if (bucketCount <= 1) {
+            return;
+        }
+        int[] config = {bucketCount, shardCount};
+        stringRedisTemplate.opsForHash().put(SECKILL_BUCKETS_KEY, voucherId.toString(), config[0] + ":" + config[1]);
+        buckets.put(voucherId, config);
+    }
+
+    /**
+     * 券的库存分段数，未分段的券为 1
+     */
+    public int bucketsOf(Long voucherId) {
+        return bucketConfig(voucherId)[0];
+    }
+
+    /**
+     * 第 bucket 段库存所在的分片
+     */
+    public int shardOf(Long voucherId, int bucket) {
+        int[] config = bucketConfig(voucherId);
+        return config[0] <= 1 ? shardOf(voucherId) : (shardOf(voucherId) + bucket) % config[1];
+    }
+
+    public String stockKey(Long voucherId, int bucket) {
+        return SECKILL_STOCK_KEY + tag(shardOf(voucherId, bucket)) + ":" + voucherId + ":" + bucket;
+    }
+
+    /**
+     * 分段券的已购用户集合，位于用户所属的段
+     */
+    public String orderKey(Long voucherId, int bucket) {
+        return SECKILL_ORDER_KEY + tag(shardOf(voucherId, bucket)) + ":" + voucherId + ":" + bucket;
+    }
+
+    public String streamKeyOf(Long voucherId, int bucket) {
+        return streamKey(shardOf(voucherId, bucket));
+    }
+
+    private int[] bucketConfig(Long voucherId) {
+        return buckets.computeIfAbsent(voucherId, id -> {
+            Object value = stringRedisTemplate.opsForHash().get(SECKILL_BUCKETS_KEY, id.toString());
+            return value == null ? new int[]{1, 1} : parseBuckets(value.toString());
+        });
+    }
+
+    private static int[] parseBuckets(String value) {
+        int idx = value.indexOf(':');
+        return new int[]{Integer.parseInt(value.substring(0, idx)), Integer.parseInt(value.substring(idx + 1))};
+    }
+
+    public String stockKey(Long voucherId) {
+        return SECKILL_STOCK_KEY + tag(shardOf(voucherId)) + ":" + voucherId;
+    }
+
+    public String orderKey(Long voucherId) {
+        return SECKILL_ORDER_KEY + tag(shardOf(voucherId)) + ":" + voucherId;
+    }
+
+    /**
+     * 分片之前的库存 key，只用于迁移
+     */
+    public static String legacyStockKey(Long voucherId) {
+        return SECKILL_STOCK_KEY + voucherId;
+    }
+
+    /**
+     * 分片之前的已购用户集合，只用于迁移
+     */
+    public static String legacyOrderKey(Long voucherId) {
+        return SECKILL_ORDER_KEY + voucherId;
+    }
+
+    public String streamKeyOf(Long voucherId) {
+        return streamKey(shardOf(voucherId));
+    }
+
+    public static String streamKey(int shard) {
+        return SECKILL_ORDER_STREAM + ":" + tag(shard);
+    }
+
+    private static String tag(int shard) {
+        return "{" + shard + "}";
+    }
+}
@@ -0,0 +1,183 @@
+package com.review.utils;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 秒杀库存：资格判断、扣减与补充
+ * 默认每张券一个库存 key；开启分段（seckill.stock.buckets > 1）后，新券的库存拆分为多段，分散在不同分片，
+ * 用户按 id 落到固定的段，该段库存不足时依次尝试其他段。一人一单由用户所属段的已购用户集合保证：
+ * 用户在所属段登记后才会去其他段扣减，同一用户的并发请求只有一个能通过登记
+ * 分片之前写入的库存与已购用户集合在启动预热、补充库存或首次秒杀时迁移到分片后的 key，
+ * 旧 key 存在时不会用数据库中的库存（异步下单，可能落后于 Redis）初始化新 key
+ */
+@Component
+public class SeckillStock {
+
+    /**
+     * 购买成功
+     */
+    public static final int OK = 0;
+    /**
+     * 库存不足
+     */
+    public static final int SOLD_OUT = 1;
+    /**
+     * 重复下单
+     */
+    public static final int DUPLICATE = 2;
+
+    private static final int BUCKET_EMPTY = 3;
+    /**
+     * 库存 key 不存在
+     */
+    private static final int STOCK_MISSING = 4;
+
+    private static final DefaultRedisScript<Long> SECKILL_SCRIPT = script("seckill.lua");
+    private static final DefaultRedisScript<Long> BUCKET_SCRIPT = script("seckill_bucket.lua");
+    private static final DefaultRedisScript<Long> FALLBACK_SCRIPT = script("seckill_fallback.lua");
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final SeckillShardRouter seckillShardRouter;
+
+    /**
+     * 新券的库存分段数，1 表示不分段
+     */
+    private final int bucketCount;
+
+    public SeckillStock(StringRedisTemplate stringRedisTemplate, SeckillShardRouter seckillShardRouter,
+                        @Value("${seckill.stock.buckets:1}") int bucketCount) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.seckillShardRouter = seckillShardRouter;
+        this.bucketCount = bucketCount;
+    }
+
+    /**
+     * 新券写入库存，开启分段时按当前配置拆分
+     */
+    public void init(Long voucherId, int stock) {
+        seckillShardRouter.assignBuckets(voucherId, bucketCount);
+        // 各段位于不同的 slot，逐个写入
+        split(voucherId, stock).forEach(stringRedisTemplate.opsForValue()::set);
+    }
+
+    /**
+     * 库存 key -> 库存，分段的券平均拆分到各段
+     * 会读取券的分片与分段配置，不要在管道中调用
+     */
+    public Map<String, String> split(Long voucherId, int stock) {
+        Map<String, String> stocks = new LinkedHashMap<>();
+        int buckets = seckillShardRouter.bucketsOf(voucherId);
+        if (buckets <= 1) {
+            stocks.put(seckillShardRouter.stockKey(voucherId), String.valueOf(stock));
+            return stocks;
+        }
+        for (int i = 0; i < buckets; i++) {
+            int share = stock / buckets + (i < stock % buckets ? 1 : 0);
+            stocks.put(seckillShardRouter.stockKey(voucherId, i), String.valueOf(share));
+        }
+        return stocks;
+    }
+
+    /**
+     * 把分片之前的库存与已购用户集合迁移到券所在分片的 key，新旧 key 位于不同的 slot，逐步复制：
+     * 先合并已购用户，再在新库存 key 不存在时写入旧库存（SETNX，不覆盖已迁移后扣减的库存），最后删除旧 key
+     * 旧库存 key 最后删除，它存在说明迁移未完成，重复执行结果相同
+     * 只有未分段的券可能存在旧 key
+     * @return 是否存在旧 key
+     */
+    public boolean migrateLegacy(Long voucherId) {
+        String legacyStockKey = SeckillShardRouter.legacyStockKey(voucherId);
+        String stock = stringRedisTemplate.opsForValue().get(legacyStockKey);
+        if (stock == null) {
+            return false;
+        }
+        String legacyOrderKey = SeckillShardRouter.legacyOrderKey(voucherId);
+        Set<String> buyers = stringRedisTemplate.opsForSet().members(legacyOrderKey);
+        if (buyers != null && !buyers.isEmpty()) {
+            stringRedisTemplate.opsForSet().add(seckillShardRouter.orderKey(voucherId), buyers.toArray(new String[0]));
+        }
+        stringRedisTemplate.opsForValue().setIfAbsent(seckillShardRouter.stockKey(voucherId), stock);
+        stringRedisTemplate.delete(legacyOrderKey);
+        stringRedisTemplate.delete(legacyStockKey);
+        return true;
+    }
+
+    /**
+     * 补充库存，分段的券平均分到各段
+     */
+    public void add(Long voucherId, int amount) {
+        // 先迁移旧库存，避免 INCRBY 创建新 key 后旧库存无法写入
+        if (seckillShardRouter.bucketsOf(voucherId) <= 1) {
+            migrateLegacy(voucherId);
+        }
+        split(voucherId, amount).forEach((key, share) -> {
+            if (!"0".equals(share)) {
+                stringRedisTemplate.opsForValue().increment(key, Long.parseLong(share));
+            }
+        });
+    }
+
+    /**
+     * 判断购买资格并扣减库存，成功时订单消息写入库存所在分片的 stream
+     * @return OK、SOLD_OUT 或 DUPLICATE
+     */
+    public int purchase(Long voucherId, Long userId, long orderId) {
+        String[] args = {voucherId.toString(), userId.toString(), String.valueOf(orderId)};
+        int buckets = seckillShardRouter.bucketsOf(voucherId);
+        if (buckets <= 1) {
+            // 库存、已购用户与 stream 位于券所在的分片
+            int r = purchaseUnbucketed(voucherId, args);
+            // 新库存 key 不存在时迁移旧 key 后重试一次，仍不存在按售罄处理
+            if (r == STOCK_MISSING && migrateLegacy(voucherId)) {
+                r = purchaseUnbucketed(voucherId, args);
+            }
+            return r == STOCK_MISSING ? SOLD_OUT : r;
+        }
+        // 1. 在用户所属的段登记并尝试扣减
+        int home = (int) Math.floorMod(userId, (long) buckets);
+        String orderKey = seckillShardRouter.orderKey(voucherId, home);
+        int r = execute(BUCKET_SCRIPT, args, seckillShardRouter.stockKey(voucherId, home),
+                orderKey, seckillShardRouter.streamKeyOf(voucherId, home));
+        if (r != BUCKET_EMPTY) {
+            return r;
+        }
+        // 2. 所属段库存不足，依次尝试其他段
+        for (int i = 1; i < buckets; i++) {
+            int bucket = (home + i) % buckets;
+            if (execute(FALLBACK_SCRIPT, args, seckillShardRouter.stockKey(voucherId, bucket),
+                    seckillShardRouter.streamKeyOf(voucherId, bucket)) == OK) {
+                return OK;
+            }
+        }
+        // 3. 全部售罄，撤销登记，补充库存后用户仍可购买
+        stringRedisTemplate.opsForSet().remove(orderKey, userId.toString());
+        return SOLD_OUT;
+    }
+
+    private int purchaseUnbucketed(Long voucherId, String[] args) {
+        return execute(SECKILL_SCRIPT, args, seckillShardRouter.stockKey(voucherId),
+                seckillShardRouter.orderKey(voucherId), seckillShardRouter.streamKeyOf(voucherId));
+    }
+
+    private int execute(DefaultRedisScript<Long> script, String[] args, String... keys) {
+        Long result = stringRedisTemplate.execute(script, Arrays.asList(keys), (Object[]) args);
+        return result.intValue();
+    }
+
+    private static DefaultRedisScript<Long> script(String location) {
+        DefaultRedisScript<Long> script = new DefaultRedisScript<>();
+        script.setLocation(new ClassPathResource(location));
+        script.setResultType(Long.class);
+        return script;
+    }
+}
@@ -0,0 +1,340 @@
+package com.review.utils;
+
+import com.review.entity.Shop;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Function;
+
+import static com.review.utils.RedisConstants.SHOP_GEO_CELL_DEGREES;
+import static com.review.utils.RedisConstants.SHOP_GEO_CHANGED_CHANNEL;
+
+/**
+ * 进程内店铺空间索引，按 typeId 分区，每个分区是按网格排序的基本类型数组
+ * 半径查询只扫描覆盖圆的网格，距离算法与 Redis GEO 一致（相同的地球半径与 haversine 公式）
+ * 分区不可变，新增或修改店铺时复制并替换所在分区（写少读多）
+ * 变更通过 pub/sub 广播，各节点同步更新本地索引；全量加载期间收到的变更先排队，加载完成后按顺序补上
+ */
+@Slf4j
+@Component
+public class ShopGeoIndex {
+
+    /**
+     * 与 Redis GEO 相同的地球半径（米）
+     */
+    private static final double EARTH_RADIUS = 6372797.560856;
+
+    private static final long CELL_OFFSET = 1L << 20;
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final boolean enabled;
+
+    private volatile boolean ready = false;
+
+    /**
+     * 正在全量加载，期间收到的变更放入 pendingChanges
+     */
+    private volatile boolean loading = false;
+
+    private final Queue<String> pendingChanges = new ConcurrentLinkedQueue<>();
+
+    private final Map<Long, Partition> partitions = new ConcurrentHashMap<>();
+
+    /**
+     * 店铺 id -> 所在分区的 typeId，店铺修改类型时用于从旧分区删除
+     */
+    private final Map<Long, Long> typeOfShop = new ConcurrentHashMap<>();
+
+    public ShopGeoIndex(StringRedisTemplate stringRedisTemplate,
+                        @Value("${shop.geo.local-index:false}") boolean enabled) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.enabled = enabled;
+    }
+
+    /**
+     * 是否可以使用本地索引查询：已开启且已加载完成
+     */
+    public boolean isAvailable() {
+        return enabled && ready;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 从数据库全量加载
+     * @param pager 按主键分页读取店铺：入参为上一页最大 id，返回下一页，为空表示读取完毕
+     */
+    public synchronized void load(Function<Long, List<Shop>> pager) {
+        loading = true;
+        Map<Long, List<Shop>> byType = new HashMap<>();
+        long lastId = 0;
+        while (true) {
+            List<Shop> shops = pager.apply(lastId);
+            if (shops == null || shops.isEmpty()) {
+                break;
+            }
+            for (Shop shop : shops) {
+                if (shop.getTypeId() != null && shop.getX() != null && shop.getY() != null) {
+                    byType.computeIfAbsent(shop.getTypeId(), t -> new ArrayList<>()).add(shop);
+                }
+            }
+            lastId = shops.get(shops.size() - 1).getId();
+        }
+        partitions.clear();
+        typeOfShop.clear();
+        byType.forEach((typeId, shops) -> {
+            long[] ids = new long[shops.size()];
+            double[] xs = new double[shops.size()];
+            double[] ys = new double[shops.size()];
+            for (int i = 0; i < shops.size(); i++) {
+                Shop shop = shops.get(i);
+                ids[i] = shop.getId();
+                xs[i] = shop.getX();
+                ys[i] = shop.getY();
+                typeOfShop.put(shop.getId(), typeId);
+            }
+            partitions.put(typeId, Partition.build(ids, xs, ys));
+        });
+        ready = true;
+        loading = false;
+        // 补上加载期间（含分页读取之后）收到的变更
+        applyPendingChanges();
+        log.info("店铺空间索引加载完成，共 {} 个类型、{} 个店铺", partitions.size(), typeOfShop.size());
+    }
+
+    /**
+     * 新增或修改店铺，类型变化时从旧分区删除，并通知其他节点
+     */
+    public void put(Shop shop) {
+        if (!enabled || shop.getTypeId() == null || shop.getX() == null || shop.getY() == null) {
+            return;
+        }
+        putLocal(shop.getId(), shop.getTypeId(), shop.getX(), shop.getY());
+        stringRedisTemplate.convertAndSend(SHOP_GEO_CHANGED_CHANNEL,
+                shop.getId() + "|" + shop.getTypeId() + "|" + shop.getX() + "|" + shop.getY());
+    }
+
+    public void remove(Long shopId) {
+        if (!enabled) {
+            return;
+        }
+        removeLocal(shopId);
+        stringRedisTemplate.convertAndSend(SHOP_GEO_CHANGED_CHANNEL, shopId.toString());
+    }
+
+    /**
+     * 其他节点的变更通知，消息格式为 id|typeId|x|y，删除时只有 id
+     * 本节点发出的消息重复应用一次，结果不变
+     * 先入队再判断是否在加载：加载中的消息由 load 结束时统一应用，不会丢失
+     */
+    public void onRemoteChange(String message) {
+        if (!enabled) {
+            return;
+        }
+        pendingChanges.add(message);
+        if (ready && !loading) {
+            applyPendingChanges();
+        }
+    }
+
+    private synchronized void applyPendingChanges() {
+        String message;
+        while ((message = pendingChanges.poll()) != null) {
+            applyChange(message);
+        }
+    }
+
+    private void applyChange(String message) {
+        String[] parts = message.split("\\|");
+        Long shopId = Long.valueOf(parts[0]);
+        if (parts.length == 1) {
+            removeLocal(shopId);
+        } else {
+            putLocal(shopId, Long.valueOf(parts[1]), Double.parseDouble(parts[2]), Double.parseDouble(parts[3]));
+        }
+    }
+
+    private synchronized void putLocal(Long shopId, Long typeId, double x, double y) {
+        removeLocal(shopId);
+        Partition old = partitions.get(typeId);
+        partitions.put(typeId, old == null
+                ? Partition.build(new long[]{shopId}, new double[]{x}, new double[]{y})
+                : old.with(shopId, x, y));
+        typeOfShop.put(shopId, typeId);
+    }
+
+    private synchronized void removeLocal(Long shopId) {
+        Long typeId = typeOfShop.remove(shopId);
+        if (typeId != null) {
+            partitions.computeIfPresent(typeId, (t, partition) -> partition.without(shopId));
+        }
+    }
+
+    /**
+     * 半径查询，按距离升序
+     * @param radius 半径（米）
+     * @param limit 最多返回的个数
+     */
+    public List<Hit> search(Long typeId, double x, double y, double radius, int limit) {
+        Partition partition = partitions.get(typeId);
+        if (partition == null) {
+            return new ArrayList<>();
+        }
+        // 1. 计算覆盖圆的网格范围
+        double latDelta = Math.toDegrees(radius / EARTH_RADIUS);
+        double cos = Math.cos(Math.toRadians(y));
+        double lonDelta = cos < 1e-6 ? 180 : Math.min(180, latDelta / cos);
+        int cx0 = cell(x - lonDelta), cx1 = cell(x + lonDelta);
+        int cy0 = cell(y - latDelta), cy1 = cell(y + latDelta);
+        // 2. 同一列的网格在数组中连续，二分查找范围后逐个计算距离
+        List<Hit> hits = new ArrayList<>();
+        for (int cx = cx0; cx <= cx1; cx++) {
+            int from = partition.lowerBound(key(cx, cy0));
+            int to = partition.lowerBound(key(cx, cy1) + 1);
+            for (int i = from; i < to; i++) {
+                double distance = distance(x, y, partition.xs[i], partition.ys[i]);
+                if (distance <= radius) {
+                    hits.add(new Hit(partition.ids[i], distance));
+                }
+            }
+        }
+        // 3. 按距离排序并截取
+        hits.sort(Comparator.comparingDouble(Hit::getDistance));
+        return hits.size() > limit ? new ArrayList<>(hits.subList(0, limit)) : hits;
+    }
+
+    /**
+     * 与 Redis geohashGetDistance 相同的 haversine 公式，结果保留 4 位小数（与 GEOSEARCH WITHDIST 一致）
+     */
+    static double distance(double lon1, double lat1, double lon2, double lat2) {
+        double lat1r = Math.toRadians(lat1);
+        double lat2r = Math.toRadians(lat2);
+        double u = Math.sin((lat2r - lat1r) / 2);
+        double v = Math.sin(Math.toRadians(lon2 - lon1) / 2);
+        double d = 2.0 * EARTH_RADIUS * Math.asin(Math.sqrt(u * u + Math.cos(lat1r) * Math.cos(lat2r) * v * v));
+        return Math.round(d * 10000) / 10000.0;
+    }
+
+    private static int cell(double degrees) {
+        return (int) Math.floor(degrees / SHOP_GEO_CELL_DEGREES);
+    }
+
+    private static long key(int cx, int cy) {
+        return ((cx + CELL_OFFSET) << 32) | (cy + CELL_OFFSET);
+    }
+
+    public static class Hit {
+        private final long id;
+        private final double distance;
+
+        private Hit(long id, double distance) {
+            this.id = id;
+            this.distance = distance;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public double getDistance() {
+            return distance;
+        }
+    }
+
+    /**
+     * 一个类型的所有店铺，按网格 key 排序
+     */
+    private static class Partition {
+        private final long[] cells;
+        private final long[] ids;
+        private final double[] xs;
+        private final double[] ys;
+
+        private Partition(long[] cells, long[] ids, double[] xs, double[] ys) {
+            this.cells = cells;
+            this.ids = ids;
+            this.xs = xs;
+            this.ys = ys;
+        }
+
+        private static Partition build(long[] ids, double[] xs, double[] ys) {
+            int n = ids.length;
+            long[] keys = new long[n];
+            Integer[] order = new Integer[n];
+            for (int i = 0; i < n; i++) {
+                keys[i] = key(cell(xs[i]), cell(ys[i]));
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparingLong(i -> keys[i]));
+            long[] sortedCells = new long[n];
+            long[] sortedIds = new long[n];
+            double[] sortedXs = new double[n];
+            double[] sortedYs = new double[n];
+            for (int i = 0; i < n; i++) {
+                sortedCells[i] = keys[order[i]];
+                sortedIds[i] = ids[order[i]];
+                sortedXs[i] = xs[order[i]];
+                sortedYs[i] = ys[order[i]];
+            }
+            return new Partition(sortedCells, sortedIds, sortedXs, sortedYs);
+        }
+
+        private Partition with(long id, double x, double y) {
+            int n = ids.length;
+            long[] newIds = Arrays.copyOf(ids, n + 1);
+            double[] newXs = Arrays.copyOf(xs, n + 1);
+            double[] newYs = Arrays.copyOf(ys, n + 1);
+            newIds[n] = id;
+            newXs[n] = x;
+            newYs[n] = y;
+            return build(newIds, newXs, newYs);
+        }
+
+        private Partition without(long id) {
+            int n = ids.length;
+            long[] newIds = new long[n];
+            double[] newXs = new double[n];
+            double[] newYs = new double[n];
+            int m = 0;
+            for (int i = 0; i < n; i++) {
+                if (ids[i] != id) {
+                    newIds[m] = ids[i];
+                    newXs[m] = xs[i];
+                    newYs[m] = ys[i];
+                    m++;
+                }
+            }
+            return build(Arrays.copyOf(newIds, m), Arrays.copyOf(newXs, m), Arrays.copyOf(newYs, m));
+        }
+
+        /**
+         * 第一个 cells[i] >= key 的下标
+         */
+        private int lowerBound(long key) {
+            int lo = 0, hi = cells.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (cells[mid] < key) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+}
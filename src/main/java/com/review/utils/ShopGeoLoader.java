@@ -0,0 +1,184 @@
+package com.review.utils;
+
+import cn.hutool.core.util.BooleanUtil;
+import com.review.entity.Shop;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.data.geo.Point;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.review.utils.RedisConstants.*;
+
+/**
+ * 维护店铺 GEO 索引 shop:geo:{typeId}
+ * 新增、修改店铺时增量写入；全量重建时写入影子 key，完成后 RENAME 原子替换
+ * 重建期间的增量写入会同时写入影子 key，替换后不会丢失
+ * hash tag 保证索引与影子 key 在同一个 slot，Redis Cluster 下也可以 RENAME
+ */
+@Slf4j
+@Component
+public class ShopGeoLoader {
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final RedissonClient redissonClient;
+
+    private final ExecutorService SHOP_GEO_RELOAD_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    public ShopGeoLoader(StringRedisTemplate stringRedisTemplate, RedissonClient redissonClient) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.redissonClient = redissonClient;
+    }
+
+    /**
+     * 某个类型的 GEO 索引 key
+     */
+    public static String geoKey(Long typeId) {
+        return SHOP_GEO_KEY + "{" + typeId + "}";
+    }
+
+    private static String rebuildKey(Long typeId) {
+        return geoKey(typeId) + SHOP_GEO_REBUILD_SUFFIX;
+    }
+
+    /**
+     * 新增店铺或店铺移动后写入 GEO 索引
+     * @param old 修改前的店铺，新增时为 null；类型变化时从旧类型的 key 中删除
+     * @param shop 当前的店铺
+     */
+    public void save(Shop old, Shop shop) {
+        if (shop == null || shop.getTypeId() == null || shop.getX() == null || shop.getY() == null) {
+            return;
+        }
+        boolean rebuilding = BooleanUtil.isTrue(stringRedisTemplate.hasKey(SHOP_GEO_REBUILDING_KEY));
+        String member = shop.getId().toString();
+        Point point = new Point(shop.getX(), shop.getY());
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            if (old != null && old.getTypeId() != null && !Objects.equals(old.getTypeId(), shop.getTypeId())) {
+                stringConnection.zRem(geoKey(old.getTypeId()), member);
+                if (rebuilding) {
+                    stringConnection.zRem(rebuildKey(old.getTypeId()), member);
+                }
+            }
+            stringConnection.geoAdd(geoKey(shop.getTypeId()), point, member);
+            if (rebuilding) {
+                stringConnection.geoAdd(rebuildKey(shop.getTypeId()), point, member);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 批量写入 GEO 索引（启动预热），重建期间同时写入影子 key
+     */
+    public void saveAll(List<Shop> shops) {
+        boolean rebuilding = BooleanUtil.isTrue(stringRedisTemplate.hasKey(SHOP_GEO_REBUILDING_KEY));
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            for (Shop shop : shops) {
+                if (shop.getTypeId() == null || shop.getX() == null || shop.getY() == null) {
+                    continue;
+                }
+                String member = shop.getId().toString();
+                Point point = new Point(shop.getX(), shop.getY());
+                stringConnection.geoAdd(geoKey(shop.getTypeId()), point, member);
+                if (rebuilding) {
+                    stringConnection.geoAdd(rebuildKey(shop.getTypeId()), point, member);
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 提交全量重建，在后台线程执行，立即返回
+     * @return false 表示已有重建在进行
+     */
+    public boolean reloadAsync(Function<Long, List<Shop>> pager, Collection<Long> typeIds) {
+        if (redissonClient.getLock(SHOP_GEO_RELOAD_LOCK).isLocked()) {
+            return false;
+        }
+        SHOP_GEO_RELOAD_EXECUTOR.submit(() -> {
+            try {
+                reload(pager, typeIds);
+            } catch (Exception e) {
+                log.error("店铺 GEO 索引重建失败", e);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * 全量重建所有类型的 GEO 索引，同一时刻集群内只有一个节点执行
+     * @param pager 按主键分页读取店铺：入参为上一页最大 id，返回下一页，为空表示读取完毕
+     * @param typeIds 所有店铺类型，重建后没有店铺的类型删除其索引
+     * @return 写入的店铺数，已有重建在进行时返回 -1
+     */
+    public long reload(Function<Long, List<Shop>> pager, Collection<Long> typeIds) {
+        RLock lock = redissonClient.getLock(SHOP_GEO_RELOAD_LOCK);
+        if (!lock.tryLock()) {
+            return -1;
+        }
+        try {
+            long begin = System.currentTimeMillis();
+            // 1. 标记重建中，并清理上次未完成的影子 key
+            stringRedisTemplate.opsForValue().set(SHOP_GEO_REBUILDING_KEY, "1", SHOP_GEO_REBUILD_TTL, TimeUnit.MINUTES);
+            stringRedisTemplate.delete(typeIds.stream().map(ShopGeoLoader::rebuildKey)
+                    .collect(Collectors.toList()));
+            // 2. 按主键分页读取店铺，管道批量写入影子 key
+            Set<Long> loadedTypes = new HashSet<>();
+            long count = 0;
+            long lastId = 0;
+            while (true) {
+                List<Shop> shops = pager.apply(lastId);
+                if (shops == null || shops.isEmpty()) {
+                    break;
+                }
+                stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                    for (Shop shop : shops) {
+                        if (shop.getTypeId() == null || shop.getX() == null || shop.getY() == null) {
+                            continue;
+                        }
+                        stringConnection.geoAdd(rebuildKey(shop.getTypeId()),
+                                new Point(shop.getX(), shop.getY()), shop.getId().toString());
+                        loadedTypes.add(shop.getTypeId());
+                    }
+                    return null;
+                });
+                count += shops.size();
+                lastId = shops.get(shops.size() - 1).getId();
+            }
+            // 3. 逐个类型原子替换，没有店铺的类型删除旧索引
+            for (Long typeId : loadedTypes) {
+                stringRedisTemplate.rename(rebuildKey(typeId), geoKey(typeId));
+            }
+            for (Long typeId : typeIds) {
+                if (!loadedTypes.contains(typeId)) {
+                    stringRedisTemplate.delete(geoKey(typeId));
+                }
+            }
+            log.info("店铺 GEO 索引重建完成，共 {} 个店铺，耗时 {} ms", count, System.currentTimeMillis() - begin);
+            return count;
+        } finally {
+            stringRedisTemplate.delete(SHOP_GEO_REBUILDING_KEY);
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.review.utils;
+
+import cn.hutool.core.util.StrUtil;
+import com.review.entity.Shop;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.review.utils.RedisConstants.SHOP_NAME_CHANGED_CHANNEL;
+
+/**
+ * 进程内店铺名称索引，替代 LIKE '%name%' 全表扫描
+ * 名称按字符切分为 1-gram 与 2-gram（中文名称没有空格分词），倒排表为 token -> 店铺 id；
+ * 查询时从关键字各 2-gram（单个字符取 1-gram）中最短的倒排表出发，校验名称确实包含关键字
+ * 排序：名称以关键字开头的优先（自动补全），其次按评分、销量降序
+ * 店铺修改（事务提交）后通过 pub/sub 把名称、评分与销量发送给各节点，不再回查数据库
+ */
+@Slf4j
+@Component
+public class ShopNameIndex {
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final boolean enabled;
+
+    private volatile boolean ready = false;
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    private final Map<String, Set<Long>> postings = new ConcurrentHashMap<>();
+
+    public ShopNameIndex(StringRedisTemplate stringRedisTemplate,
+                         @Value("${shop.name-index.enabled:true}") boolean enabled) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 是否可以使用索引查询：已开启且已加载完成
+     */
+    public boolean isAvailable() {
+        return enabled && ready;
+    }
+
+    /**
+     * 从数据库全量加载
+     * @param pager 按主键分页读取店铺：入参为上一页最大 id，返回下一页，为空表示读取完毕
+     */
+    public void load(Function<Long, List<Shop>> pager) {
+        long lastId = 0;
+        while (true) {
+            List<Shop> shops = pager.apply(lastId);
+            if (shops == null || shops.isEmpty()) {
+                break;
+            }
+            shops.forEach(this::index);
+            lastId = shops.get(shops.size() - 1).getId();
+        }
+        ready = true;
+        log.info("店铺名称索引加载完成，共 {} 个店铺、{} 个 token", entries.size(), postings.size());
+    }
+
+    /**
+     * 新增或修改店铺（事务提交后）更新本节点的索引，并通知其他节点
+     * 消息格式为 id|score|sold|name，名称放在最后，可以包含分隔符
+     */
+    public void put(Shop shop) {
+        if (!enabled || shop == null) {
+            return;
+        }
+        index(shop);
+        int score = shop.getScore() == null ? 0 : shop.getScore();
+        int sold = shop.getSold() == null ? 0 : shop.getSold();
+        String name = shop.getName() == null ? "" : shop.getName();
+        stringRedisTemplate.convertAndSend(SHOP_NAME_CHANGED_CHANNEL, shop.getId() + "|" + score + "|" + sold + "|" + name);
+    }
+
+    /**
+     * 其他节点修改店铺的通知，直接使用消息中的名称、评分与销量
+     */
+    public void onRemoteChange(String message) {
+        if (!isAvailable()) {
+            return;
+        }
+        String[] parts = message.split("\\|", 4);
+        Shop shop = new Shop();
+        shop.setId(Long.valueOf(parts[0]));
+        shop.setScore(Integer.valueOf(parts[1]));
+        shop.setSold(Integer.valueOf(parts[2]));
+        shop.setName(parts[3]);
+        // 名称为空时 index 只删除旧条目
+        index(shop);
+    }
+
+    /**
+     * 按名称关键字查询
+     * @return 排好序的店铺 id，最多 limit 个
+     */
+    public List<Long> search(String keyword, int limit) {
+        String q = normalize(keyword);
+        if (q.isEmpty()) {
+            return new ArrayList<>();
+        }
+        // 1. 取关键字各 token 的倒排表，任一不存在则没有结果
+        Set<Long> candidates = null;
+        for (String token : queryTokens(q)) {
+            Set<Long> ids = postings.get(token);
+            if (ids == null) {
+                return new ArrayList<>();
+            }
+            if (candidates == null || ids.size() < candidates.size()) {
+                candidates = ids;
+            }
+        }
+        // 2. 遍历最短的倒排表，校验名称包含关键字（同时排除 2-gram 都命中但不连续的情况）
+        List<Entry> matched = new ArrayList<>();
+        for (Long id : candidates) {
+            Entry entry = entries.get(id);
+            if (entry != null && entry.name.contains(q)) {
+                matched.add(entry);
+            }
+        }
+        // 3. 前缀匹配优先，其次按评分、销量降序
+        return matched.stream()
+                .sorted(Comparator.comparing((Entry e) -> !e.name.startsWith(q))
+                        .thenComparing(Comparator.comparingInt((Entry e) -> e.score).reversed())
+                        .thenComparing(Comparator.comparingInt((Entry e) -> e.sold).reversed())
+                        .thenComparingLong(e -> e.id))
+                .limit(limit)
+                .map(e -> e.id)
+                .collect(Collectors.toList());
+    }
+
+    private synchronized void index(Shop shop) {
+        remove(shop.getId());
+        if (StrUtil.isBlank(shop.getName())) {
+            return;
+        }
+        Entry entry = new Entry(shop.getId(), normalize(shop.getName()),
+                shop.getScore() == null ? 0 : shop.getScore(), shop.getSold() == null ? 0 : shop.getSold());
+        entries.put(entry.id, entry);
+        for (String token : tokens(entry.name)) {
+            postings.computeIfAbsent(token, t -> ConcurrentHashMap.newKeySet()).add(entry.id);
+        }
+    }
+
+    private synchronized void remove(Long id) {
+        Entry old = entries.remove(id);
+        if (old == null) {
+            return;
+        }
+        for (String token : tokens(old.name)) {
+            postings.computeIfPresent(token, (t, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    /**
+     * 名称的所有 1-gram 与 2-gram
+     */
+    private static Set<String> tokens(String name) {
+        Set<String> tokens = new HashSet<>();
+        for (int i = 0; i < name.length(); i++) {
+            tokens.add(name.substring(i, i + 1));
+            if (i + 2 <= name.length()) {
+                tokens.add(name.substring(i, i + 2));
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * 关键字的查询 token：单个字符取 1-gram，否则取所有 2-gram
+     */
+    private static Set<String> queryTokens(String q) {
+        if (q.length() == 1) {
+            return Collections.singleton(q);
+        }
+        Set<String> tokens = new HashSet<>();
+        for (int i = 0; i + 2 <= q.length(); i++) {
+            tokens.add(q.substring(i, i + 2));
+        }
+        return tokens;
+    }
+
+    private static String normalize(String s) {
+        return s == null ? "" : StrUtil.cleanBlank(s).toLowerCase();
+    }
+
+    private static class Entry {
+        private final long id;
+        private final String name;
+        private final int score;
+        private final int sold;
+
+        private Entry(long id, String name, int score, int sold) {
+            this.id = id;
+            this.name = name;
+            this.score = score;
+            this.sold = sold;
+        }
+    }
+}
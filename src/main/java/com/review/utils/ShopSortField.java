@@ -0,0 +1,66 @@
+package com.review.utils;
+
+import com.review.entity.Shop;
+
+import java.util.function.Function;
+
+/**
+ * 店铺列表的排序字段
+ */
+public enum ShopSortField {
+
+    SCORE("score", "score", true, Shop::getScore),
+    SOLD("sold", "sold", true, Shop::getSold),
+    COMMENTS("comments", "comments", true, Shop::getComments),
+    AVG_PRICE("avgPrice", "avg_price", false, Shop::getAvgPrice);
+
+    /**
+     * 请求参数与索引 key 中使用的名称
+     */
+    private final String name;
+    /**
+     * 数据库列名，索引不可用时按该列排序
+     */
+    private final String column;
+    /**
+     * 默认是否降序
+     */
+    private final boolean desc;
+    private final Function<Shop, Number> getter;
+
+    ShopSortField(String name, String column, boolean desc, Function<Shop, Number> getter) {
+        this.name = name;
+        this.column = column;
+        this.desc = desc;
+        this.getter = getter;
+    }
+
+    public static ShopSortField of(String name) {
+        for (ShopSortField field : values()) {
+            if (field.name.equals(name)) {
+                return field;
+            }
+        }
+        return null;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    public boolean isDesc() {
+        return desc;
+    }
+
+    /**
+     * 店铺在该字段上的值，作为有序集合的 score，为空时按 0 处理
+     */
+    public double valueOf(Shop shop) {
+        Number value = getter.apply(shop);
+        return value == null ? 0 : value.doubleValue();
+    }
+}
@@ -0,0 +1,117 @@
+package com.review.utils;
+
+import cn.hutool.core.util.StrUtil;
+import com.review.entity.Shop;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static com.review.utils.RedisConstants.SHOP_SORT_KEY;
+
+/**
+ * 店铺排序索引：每个类型、每个排序字段一个有序集合，member 为店铺 id，score 为字段值
+ * shop:sort:{typeId}:{field} 为类型下全部店铺，shop:sort:{typeId}:{area}:{field} 为类型下某个商圈的店铺
+ * 分页为 ZRANGE 按排名截取，复杂度 O(log(N) + M)，与页码深浅无关
+ */
+@Component
+public class ShopSortIndex {
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    public ShopSortIndex(StringRedisTemplate stringRedisTemplate) {
+        this.stringRedisTemplate = stringRedisTemplate;
+    }
+
+    /**
+     * 批量写入索引，用于预热
+     */
+    public void addAll(List<Shop> shops) {
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            shops.forEach(shop -> add(stringConnection, shop));
+            return null;
+        });
+    }
+
+    /**
+     * 新增或修改店铺后更新索引
+     * @param old 修改前的店铺，新增时为 null；类型或商圈变化时从旧的集合中删除
+     * @param shop 当前的店铺
+     */
+    public void save(Shop old, Shop shop) {
+        if (shop == null || shop.getTypeId() == null) {
+            return;
+        }
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            if (old != null && old.getTypeId() != null) {
+                String member = old.getId().toString();
+                boolean typeChanged = !Objects.equals(old.getTypeId(), shop.getTypeId());
+                boolean areaChanged = !Objects.equals(old.getArea(), shop.getArea());
+                for (ShopSortField field : ShopSortField.values()) {
+                    if (typeChanged) {
+                        stringConnection.zRem(keyOf(old.getTypeId(), null, field), member);
+                    }
+                    if ((typeChanged || areaChanged) && StrUtil.isNotBlank(old.getArea())) {
+                        stringConnection.zRem(keyOf(old.getTypeId(), old.getArea(), field), member);
+                    }
+                }
+            }
+            add(stringConnection, shop);
+            return null;
+        });
+    }
+
+    /**
+     * 类型下的排序索引是否存在，不存在时（未预热）由调用方回退到数据库
+     */
+    public boolean exists(Long typeId, ShopSortField field) {
+        return Boolean.TRUE.equals(stringRedisTemplate.hasKey(keyOf(typeId, null, field)));
+    }
+
+    /**
+     * 按排名分页查询店铺 id
+     * @param area 商圈，为空表示不限
+     * @param desc 是否降序
+     * @param from 起始排名，从 0 开始
+     * @param count 个数
+     * @return 排好序的店铺 id
+     */
+    public List<Long> range(Long typeId, String area, ShopSortField field, boolean desc, long from, long count) {
+        String key = keyOf(typeId, area, field);
+        Set<String> members = desc
+                ? stringRedisTemplate.opsForZSet().reverseRange(key, from, from + count - 1)
+                : stringRedisTemplate.opsForZSet().range(key, from, from + count - 1);
+        if (members == null || members.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return members.stream().map(Long::valueOf).collect(Collectors.toList());
+    }
+
+    private void add(StringRedisConnection connection, Shop shop) {
+        if (shop.getTypeId() == null) {
+            return;
+        }
+        String member = shop.getId().toString();
+        for (ShopSortField field : ShopSortField.values()) {
+            double score = field.valueOf(shop);
+            connection.zAdd(keyOf(shop.getTypeId(), null, field), score, member);
+            if (StrUtil.isNotBlank(shop.getArea())) {
+                connection.zAdd(keyOf(shop.getTypeId(), shop.getArea(), field), score, member);
+            }
+        }
+    }
+
+    private static String keyOf(Long typeId, String area, ShopSortField field) {
+        return StrUtil.isBlank(area)
+                ? SHOP_SORT_KEY + typeId + ":" + field.getName()
+                : SHOP_SORT_KEY + typeId + ":" + area + ":" + field.getName();
+    }
+}
@@ -0,0 +1,49 @@
+package com.review.utils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 请求合并：同一 JVM 内对同一 key 的并发加载只执行一次，其余线程共享同一个 CompletableFuture 的结果
+ */
+public class SingleFlight {
+
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> calls = new ConcurrentHashMap<>();
+
+    @SuppressWarnings("unchecked")
+    public <R> R execute(String key, Supplier<R> loader) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = calls.putIfAbsent(key, future);
+        if (inFlight != null) {
+            // 已有线程在加载，等待其结果
+            return (R) join(inFlight);
+        }
+        try {
+            R r = loader.get();
+            future.complete(r);
+            return r;
+        } catch (Throwable e) {
+            // 包括 Error 与被隐式抛出的受检异常，保证等待的线程都能结束
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            calls.remove(key, future);
+        }
+    }
+
+    private Object join(CompletableFuture<Object> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.review.utils;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static com.review.utils.RedisConstants.*;
+
+/**
+ * 秒杀券售罄标记：脚本返回库存不足后在本地标记，并通过 pub/sub 通知所有节点
+ * 标记期间的秒杀请求直接拒绝，不再访问 Redis；补充库存时清除标记
+ * 补充库存会递增券的版本号，售罄通知带上执行脚本前的版本号，晚于补充库存到达的旧通知直接忽略
+ * 标记有过期时间，库存被其他途径修改时，每个节点最多一个周期后重新访问 Redis
+ */
+@Component
+public class SoldOutRegistry {
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 券 id -> 售罄标记
+     */
+    private final Map<Long, Flag> soldOut = new ConcurrentHashMap<>();
+
+    /**
+     * 券 id -> 已知的最新补充库存版本
+     */
+    private final Map<Long, Long> restockVersions = new ConcurrentHashMap<>();
+
+    public SoldOutRegistry(StringRedisTemplate stringRedisTemplate) {
+        this.stringRedisTemplate = stringRedisTemplate;
+    }
+
+    public boolean isSoldOut(Long voucherId) {
+        Flag flag = soldOut.get(voucherId);
+        if (flag == null) {
+            return false;
+        }
+        if (flag.expireAt < System.currentTimeMillis()) {
+            soldOut.remove(voucherId, flag);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 当前已知的补充库存版本，每个券首次访问时从 Redis 读取
+     */
+    public long restockVersion(Long voucherId) {
+        return restockVersions.computeIfAbsent(voucherId, id -> {
+            String version = stringRedisTemplate.opsForValue().get(SECKILL_RESTOCK_VERSION_KEY + id);
+            return version == null ? 0L : Long.parseLong(version);
+        });
+    }
+
+    /**
+     * 标记售罄，并通知其他节点
+     * @param version 执行秒杀脚本前的补充库存版本
+     */
+    public void markSoldOut(Long voucherId, long version) {
+        // 已标记的不重复广播，售罄后的大量重试只会广播一次
+        if (isSoldOut(voucherId)) {
+            return;
+        }
+        if (mark(voucherId, version)) {
+            stringRedisTemplate.convertAndSend(SECKILL_SOLD_OUT_CHANNEL, voucherId + "|" + version);
+        }
+    }
+
+    /**
+     * 补充库存后递增版本并清除标记，通知其他节点
+     */
+    public void clear(Long voucherId) {
+        Long version = stringRedisTemplate.opsForValue().increment(SECKILL_RESTOCK_VERSION_KEY + voucherId);
+        if (version == null) {
+            soldOut.remove(voucherId);
+            return;
+        }
+        restock(voucherId, version);
+        stringRedisTemplate.convertAndSend(SECKILL_RESTOCK_CHANNEL, voucherId + "|" + version);
+    }
+
+    /**
+     * 其他节点的售罄通知：id|version
+     */
+    public void onRemoteSoldOut(String message) {
+        String[] parts = message.split("\\|");
+        mark(Long.valueOf(parts[0]), Long.parseLong(parts[1]));
+    }
+
+    /**
+     * 其他节点的补充库存通知：id|version
+     */
+    public void onRemoteRestock(String message) {
+        String[] parts = message.split("\\|");
+        restock(Long.valueOf(parts[0]), Long.parseLong(parts[1]));
+    }
+
+    /**
+     * 版本早于最近一次补充库存的标记不生效
+     * @return 是否已标记
+     */
+    private boolean mark(Long voucherId, long version) {
+        long expireAt = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(SECKILL_SOLD_OUT_TTL);
+        // 先加载版本，compute 内不访问 Redis
+        restockVersion(voucherId);
+        // 与 restock 在同一个 key 上串行执行，不会把补充库存后的标记遗留下来
+        Flag flag = soldOut.compute(voucherId, (id, old) ->
+                version < restockVersions.getOrDefault(id, 0L) ? old : new Flag(version, expireAt));
+        return flag != null && flag.version == version && flag.expireAt == expireAt;
+    }
+
+    private void restock(Long voucherId, long version) {
+        restockVersions.merge(voucherId, version, Math::max);
+        soldOut.computeIfPresent(voucherId, (id, flag) -> flag.version < version ? null : flag);
+    }
+
+    private static class Flag {
+        private final long version;
+        private final long expireAt;
+
+        private Flag(long version, long expireAt) {
+            this.version = version;
+            this.expireAt = expireAt;
+        }
+    }
+}
@@ -5,4 +5,10 @@ public class SystemConstants {
     public static final String USER_NICK_NAME_PREFIX = "user_";
     public static final int DEFAULT_PAGE_SIZE = 5;
     public static final int MAX_PAGE_SIZE = 10;
+    public static final int DB_BATCH_SIZE = 1000;
+    public static final int WARM_UP_THREADS = 4;
+    public static final int CACHE_REBUILD_THREADS = 10;
+    public static final int CACHE_REBUILD_QUEUE_CAPACITY = 1000;
+    public static final int ASYNC_LOAD_THREADS = 20;
+    public static final int ASYNC_LOAD_QUEUE_CAPACITY = 1000;
 }
@@ -0,0 +1,30 @@
+package com.review.utils;
+
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 就绪门：缓存预热完成前拒绝业务请求，避免大量请求直接打到 MySQL
+ */
+public class WarmUpInterceptor implements HandlerInterceptor {
+
+    private final CacheWarmUpRunner cacheWarmUpRunner;
+
+    public WarmUpInterceptor(CacheWarmUpRunner cacheWarmUpRunner) {
+        this.cacheWarmUpRunner = cacheWarmUpRunner;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (!cacheWarmUpRunner.isReady()) {
+            // 预热中，返回 503，由负载均衡重试其他节点
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader("Retry-After", "5");
+            return false;
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,15 @@
+-- 布隆过滤器写入
+-- KEYS[1] 为过滤器 bitmap 的 key，KEYS[2] 为重建中的影子 key
+-- ARGV 为需要置 1 的 bit 偏移量
+
+-- 1. 判断是否正在重建，重建期间同时写入影子 key，避免重建完成后丢失新增的 id
+local rebuilding = redis.call('exists', KEYS[2]) == 1
+
+-- 2. 置位 SETBIT key offset 1
+for i = 1, #ARGV do
+    redis.call('setbit', KEYS[1], ARGV[i], 1)
+    if rebuilding then
+        redis.call('setbit', KEYS[2], ARGV[i], 1)
+    end
+end
+return 0
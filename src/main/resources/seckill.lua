@@ -12,15 +12,22 @@ local userId = ARGV[2]
 -- 1.3. 订单id
 local orderId = ARGV[3]
 
--- 2. 数据 key
+-- 2. 数据 key，三个 key 带有相同的 hash tag（券所在分片），位于同一个 slot
 -- 2.1. 库存 key
-local stockKey = 'seckill:stock:' .. voucherId
+local stockKey = KEYS[1]
 -- 2.2. 订单 key
-local orderKey = 'seckill:order:' .. voucherId
+local orderKey = KEYS[2]
+-- 2.3. 订单消息队列（券所在分片的 stream）
+local streamKey = KEYS[3]
 
 -- 3. 脚本业务
 -- 3.1. 判断库存是否充足 get stockKey
-if (tonumber(redis.call('get', stockKey)) <= 0) then
+local stock = tonumber(redis.call('get', stockKey))
+if (stock == nil) then
+    -- 库存 key 不存在（可能仍是分片之前的旧 key），返回4，由调用方迁移后重试
+    return 4
+end
+if (stock <= 0) then
     -- 3.2. 库存不足，返回1
     return 1
 end
@@ -35,6 +42,6 @@ end
 redis.call('incrby', stockKey, -1)
 -- 3.5. 下单 （保存用户） sadd orderKey userId
 redis.call('sadd', orderKey, userId)
--- 3.6. 发送消息到队列中    XADD stream.orders * k1 v1 k2 v2 ...
-redis.call('xadd', 'stream.orders', '*', 'userId', userId, 'voucherId', voucherId, 'id', orderId)
-return 0
\ No newline at end of file
+-- 3.6. 发送消息到队列中    XADD streamKey * k1 v1 k2 v2 ...
+redis.call('xadd', streamKey, '*', 'userId', userId, 'voucherId', voucherId, 'id', orderId)
+return 0
@@ -0,0 +1,25 @@
+-- 分段库存：在用户所属的段下单
+-- KEYS[1] 该段库存，KEYS[2] 该券的已购用户集合（位于用户所属的段），KEYS[3] 该段所在分片的 stream
+-- ARGV: 优惠券 id、用户 id、订单 id
+local stockKey = KEYS[1]
+local orderKey = KEYS[2]
+local streamKey = KEYS[3]
+local voucherId = ARGV[1]
+local userId = ARGV[2]
+local orderId = ARGV[3]
+
+-- 1. 判断用户是否下单过（或正在其他段下单），是则返回 2
+if (redis.call('sismember', orderKey, userId) == 1) then
+    return 2
+end
+-- 2. 记录用户，同一用户的其他请求都会在上一步被拒绝
+redis.call('sadd', orderKey, userId)
+-- 3. 本段库存不足，返回 3，由调用方依次尝试其他段
+local stock = tonumber(redis.call('get', stockKey))
+if (stock == nil or stock <= 0) then
+    return 3
+end
+-- 4. 扣库存，发送消息到队列中
+redis.call('incrby', stockKey, -1)
+redis.call('xadd', streamKey, '*', 'userId', userId, 'voucherId', voucherId, 'id', orderId)
+return 0
@@ -0,0 +1,14 @@
+-- 分段库存：用户所属的段库存不足时，在其他段扣减
+-- 一人一单已由用户所属段的已购用户集合保证，这里只扣库存
+-- KEYS[1] 该段库存，KEYS[2] 该段所在分片的 stream
+-- ARGV: 优惠券 id、用户 id、订单 id
+local stockKey = KEYS[1]
+local streamKey = KEYS[2]
+
+local stock = tonumber(redis.call('get', stockKey))
+if (stock == nil or stock <= 0) then
+    return 1
+end
+redis.call('incrby', stockKey, -1)
+redis.call('xadd', streamKey, '*', 'userId', ARGV[2], 'voucherId', ARGV[1], 'id', ARGV[3])
+return 0
@@ -4,29 +4,40 @@ import cn.hutool.core.date.DateTime;
 import com.review.entity.Shop;
 import com.review.service.impl.ShopServiceImpl;
 import com.review.utils.CacheClient;
+import com.review.utils.RebuildLimiter;
 import com.review.utils.RedisIdWorker;
+import com.review.utils.ShopGeoLoader;
+import com.review.utils.ShopGeoIndex;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.redisson.api.RLock;
 import org.redisson.api.RedissonClient;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.geo.Distance;
+import org.springframework.data.geo.GeoResults;
 import org.springframework.data.geo.Point;
 import org.springframework.data.redis.connection.RedisGeoCommands;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.domain.geo.GeoReference;
 
 import javax.annotation.Resource;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import static com.review.utils.RedisConstants.CACHE_SHOP_KEY;
-import static com.review.utils.RedisConstants.SHOP_GEO_KEY;
+import static com.review.utils.RedisConstants.SHOP_GEO_RADIUS;
 
 @SpringBootTest
 class DianPingApplicationTests {
@@ -67,6 +78,111 @@ class DianPingApplicationTests {
         System.out.println("Time = " + (end - begin));
     }
 
+    /**
+     * 逐个 INCR 与号段模式的 id 生成对比：同样 300 个任务各生成 100 个 id
+     * 号段模式下同一线程生成的 id 单调递增，且全部不重复
+     */
+    @Test
+    void testIdWorkerSegment() throws InterruptedException {
+        RedisIdWorker plainWorker = new RedisIdWorker(stringRedisTemplate, false, 0);
+        RedisIdWorker segmentWorker = new RedisIdWorker(stringRedisTemplate, true, 1000);
+        int tasks = 300;
+        int idsPerTask = 100;
+        for (int round = 0; round < 3; round++) {
+            long plainTime = timeIdWorker(plainWorker, tasks, idsPerTask, null);
+            Map<Long, Boolean> ids = new ConcurrentHashMap<>();
+            long segmentTime = timeIdWorker(segmentWorker, tasks, idsPerTask, ids);
+            Assertions.assertEquals(tasks * idsPerTask, ids.size());
+            System.out.println("plain = " + plainTime + "ms, segment = " + segmentTime + "ms");
+        }
+    }
+
+    private long timeIdWorker(RedisIdWorker worker, int tasks, int idsPerTask, Map<Long, Boolean> ids)
+            throws InterruptedException {
+        CountDownLatch countDownLatch = new CountDownLatch(tasks);
+        AtomicInteger disorders = new AtomicInteger();
+        Runnable task = () -> {
+            long last = 0;
+            for (int i = 0; i < idsPerTask; i++) {
+                long id = worker.nextId("bench");
+                if (id <= last) {
+                    disorders.incrementAndGet();
+                }
+                last = id;
+                if (ids != null) {
+                    ids.put(id, Boolean.TRUE);
+                }
+            }
+            countDownLatch.countDown();
+        };
+        long begin = System.currentTimeMillis();
+        for (int i = 0; i < tasks; i++) {
+            es.submit(task);
+        }
+        countDownLatch.await();
+        long time = System.currentTimeMillis() - begin;
+        Assertions.assertEquals(0, disorders.get());
+        return time;
+    }
+
+    /**
+     * 同步与异步查询的吞吐量对比：固定 16 个调用线程，各自查询不同的 key（避开一级缓存与热点副本，每次都访问 Redis）
+     * 同步方式每个线程同一时刻只有一个请求在途；异步方式每个线程最多 32 个请求在途
+     */
+    @Test
+    void testAsyncQueryThroughput() throws InterruptedException {
+        int threads = 16;
+        int total = 20000;
+        String syncPrefix = "cache:bench:sync:";
+        String asyncPrefix = "cache:bench:async:";
+        Shop shop = shopService.getById(1L);
+        for (int i = 0; i < total; i++) {
+            cacheClient.setWithLogicalExpire(syncPrefix + i, shop, 30L, TimeUnit.MINUTES);
+            cacheClient.setWithLogicalExpire(asyncPrefix + i, shop, 30L, TimeUnit.MINUTES);
+        }
+        ExecutorService callers = Executors.newFixedThreadPool(threads);
+
+        CountDownLatch syncLatch = new CountDownLatch(threads);
+        long begin = System.currentTimeMillis();
+        for (int t = 0; t < threads; t++) {
+            int offset = t;
+            callers.submit(() -> {
+                for (int i = offset; i < total; i += threads) {
+                    cacheClient.queryWithLogicalExpire(
+                            syncPrefix, (long) i, Shop.class, shopService::getById, 30L, TimeUnit.MINUTES);
+                }
+                syncLatch.countDown();
+            });
+        }
+        syncLatch.await();
+        long syncTime = System.currentTimeMillis() - begin;
+
+        CountDownLatch asyncLatch = new CountDownLatch(total);
+        begin = System.currentTimeMillis();
+        for (int t = 0; t < threads; t++) {
+            int offset = t;
+            callers.submit(() -> {
+                Semaphore inFlight = new Semaphore(32);
+                for (int i = offset; i < total; i += threads) {
+                    inFlight.acquireUninterruptibly();
+                    cacheClient.queryWithLogicalExpireAsync(
+                                    asyncPrefix, (long) i, Shop.class, shopService::getById, 30L, TimeUnit.MINUTES)
+                            .whenComplete((r, e) -> {
+                                inFlight.release();
+                                asyncLatch.countDown();
+                            });
+                }
+            });
+        }
+        asyncLatch.await();
+        long asyncTime = System.currentTimeMillis() - begin;
+        callers.shutdown();
+
+        System.out.println("同步 QPS = " + total * 1000L / Math.max(syncTime, 1));
+        System.out.println("异步 QPS = " + total * 1000L / Math.max(asyncTime, 1));
+        stringRedisTemplate.delete(stringRedisTemplate.keys("cache:bench:*"));
+    }
+
     @Resource
     private RedissonClient redissonClient;
 
@@ -86,6 +202,46 @@ class DianPingApplicationTests {
         }
     }
 
+    @Resource
+    private RebuildLimiter rebuildLimiter;
+
+    /**
+     * 测试缓存重建限流：200 个线程同时重建，同一时刻查库的线程数不超过许可数
+     */
+    @Test
+    void testRebuildLimiter() throws InterruptedException {
+        String keyPrefix = "cache:test:limiter:";
+        rebuildLimiter.setMaxConcurrency(keyPrefix, 5);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch countDownLatch = new CountDownLatch(200);
+        for (int i = 0; i < 200; i++) {
+            es.submit(() -> {
+                String permitId = rebuildLimiter.tryAcquire(keyPrefix, 500);
+                if (permitId == null) {
+                    rejected.incrementAndGet();
+                    countDownLatch.countDown();
+                    return;
+                }
+                try {
+                    // 模拟查库
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    Thread.sleep(20);
+                    running.decrementAndGet();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    rebuildLimiter.release(keyPrefix, permitId);
+                    countDownLatch.countDown();
+                }
+            });
+        }
+        countDownLatch.await();
+        System.out.println("最大并发查库数 = " + maxRunning.get() + "，排队超时 = " + rejected.get());
+        Assertions.assertTrue(maxRunning.get() <= 5);
+    }
+
     @Resource
     private StringRedisTemplate stringRedisTemplate;
 
@@ -98,7 +254,7 @@ class DianPingApplicationTests {
 
         // 3. 分批次按 typeId 写入 Redis
         longListMap.forEach((typeId, shopList1) -> {
-            String key = SHOP_GEO_KEY + typeId;
+            String key = ShopGeoLoader.geoKey(typeId);
             // 存储 店铺id 位置
             List<RedisGeoCommands.GeoLocation<String>> locations = new ArrayList<>(shopList1.size());
             // 把店铺位置信息加入到 locations
@@ -113,6 +269,79 @@ class DianPingApplicationTests {
         });
     }
 
+    /**
+     * 本地空间索引与 GEOSEARCH 的对比：结果一致性与单次查询耗时
+     * 需先执行 loadShopData 写入 Redis GEO
+     */
+    @Test
+    void testShopGeoIndex() {
+        ShopGeoIndex index = new ShopGeoIndex(stringRedisTemplate, true);
+        index.load(shopService::queryShopsAfter);
+        Map<Long, List<Shop>> shopsByType = shopService.list().stream().collect(Collectors.groupingBy(Shop::getTypeId));
+        // 以店铺坐标附近的随机点作为查询中心
+        Random random = new Random(42);
+        List<double[]> points = new ArrayList<>();
+        List<Long> types = new ArrayList<>();
+        shopsByType.forEach((typeId, shops) -> {
+            for (int i = 0; i < 200; i++) {
+                Shop shop = shops.get(random.nextInt(shops.size()));
+                points.add(new double[]{shop.getX() + (random.nextDouble() - 0.5) * 0.05, shop.getY() + (random.nextDouble() - 0.5) * 0.05});
+                types.add(typeId);
+            }
+        });
+
+        // 1. 结果一致性（双向，不限个数）：Redis 存储的是 52 位 geohash，坐标有微小误差，距离允许 1 米以内的偏差，
+        //    距离半径边界 1 米以内的店铺允许只出现在一边
+        int mismatched = 0;
+        for (int i = 0; i < points.size(); i++) {
+            double[] p = points.get(i);
+            List<ShopGeoIndex.Hit> local = index.search(types.get(i), p[0], p[1], SHOP_GEO_RADIUS, Integer.MAX_VALUE);
+            GeoResults<RedisGeoCommands.GeoLocation<String>> remote = stringRedisTemplate.opsForGeo().search(
+                    ShopGeoLoader.geoKey(types.get(i)), GeoReference.fromCoordinate(p[0], p[1]), new Distance(SHOP_GEO_RADIUS),
+                    RedisGeoCommands.GeoSearchCommandArgs.newGeoSearchArgs().includeDistance());
+            Map<Long, Double> remoteDistances = remote.getContent().stream().collect(Collectors.toMap(
+                    r -> Long.parseLong(r.getContent().getName()), r -> r.getDistance().getValue()));
+            Map<Long, Double> localDistances = local.stream().collect(Collectors.toMap(
+                    ShopGeoIndex.Hit::getId, ShopGeoIndex.Hit::getDistance));
+            for (ShopGeoIndex.Hit hit : local) {
+                Double d = remoteDistances.get(hit.getId());
+                if (d == null ? hit.getDistance() < SHOP_GEO_RADIUS - 1 : Math.abs(d - hit.getDistance()) > 1) {
+                    mismatched++;
+                }
+            }
+            for (Map.Entry<Long, Double> entry : remoteDistances.entrySet()) {
+                if (!localDistances.containsKey(entry.getKey()) && entry.getValue() < SHOP_GEO_RADIUS - 1) {
+                    mismatched++;
+                }
+            }
+        }
+        Assertions.assertEquals(0, mismatched);
+
+        // 2. 耗时对比
+        int rounds = 20;
+        long begin = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            for (int i = 0; i < points.size(); i++) {
+                double[] p = points.get(i);
+                index.search(types.get(i), p[0], p[1], SHOP_GEO_RADIUS, 10);
+            }
+        }
+        long localTime = System.nanoTime() - begin;
+        begin = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            for (int i = 0; i < points.size(); i++) {
+                double[] p = points.get(i);
+                stringRedisTemplate.opsForGeo().search(
+                        ShopGeoLoader.geoKey(types.get(i)), GeoReference.fromCoordinate(p[0], p[1]), new Distance(SHOP_GEO_RADIUS),
+                        RedisGeoCommands.GeoSearchCommandArgs.newGeoSearchArgs().includeDistance().sortAscending().limit(10));
+            }
+        }
+        long redisTime = System.nanoTime() - begin;
+        long total = (long) rounds * points.size();
+        System.out.println("本地索引平均耗时(us) = " + localTime / 1000 / total);
+        System.out.println("GEOSEARCH 平均耗时(us) = " + redisTime / 1000 / total);
+    }
+
     /**
      * 测试 UV 统计
      */
@@ -0,0 +1,71 @@
+package com.review.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CacheTtlPolicyTest {
+
+    private static final int KEYS = 10000;
+
+    @Test
+    void testJitterBounds() {
+        CacheTtlPolicy policy = new CacheTtlPolicy(0.1);
+        policy.setJitter("cache:shop:", 0.3);
+        policy.setJitter("cache:shop:type", 0);
+        long ttl = TimeUnit.MINUTES.toMillis(30);
+        for (int i = 0; i < KEYS; i++) {
+            long shop = policy.jitteredMillis("cache:shop:" + i, 30, TimeUnit.MINUTES);
+            assertTrue(shop >= ttl && shop <= ttl * 1.3);
+            long user = policy.jitteredMillis("cache:user:" + i, 30, TimeUnit.MINUTES);
+            assertTrue(user >= ttl && user <= ttl * 1.1);
+        }
+        // 最长前缀优先
+        assertEquals(ttl, policy.jitteredMillis("cache:shop:type", 30, TimeUnit.MINUTES));
+    }
+
+    /**
+     * 模拟批量预热 10000 个 key，统计每分钟过期（即回源查库）的 key 数
+     */
+    @Test
+    void testExpiryCurveFlattening() {
+        int[] fixed = expiryHistogram(new CacheTtlPolicy(0));
+        int[] jittered = expiryHistogram(new CacheTtlPolicy(0.3));
+        System.out.println("无抖动每分钟过期数: " + toString(fixed));
+        System.out.println("有抖动每分钟过期数: " + toString(jittered));
+        // 无抖动时全部 key 在同一分钟过期
+        assertEquals(KEYS, max(fixed));
+        // 有抖动时过期分散在约 9 分钟内，峰值大幅下降
+        assertTrue(max(jittered) < KEYS / 5);
+    }
+
+    private int[] expiryHistogram(CacheTtlPolicy policy) {
+        int[] histogram = new int[40];
+        for (int i = 0; i < KEYS; i++) {
+            long ttl = policy.jitteredMillis("cache:shop:" + i, 30, TimeUnit.MINUTES);
+            histogram[(int) TimeUnit.MILLISECONDS.toMinutes(ttl)]++;
+        }
+        return histogram;
+    }
+
+    private int max(int[] histogram) {
+        int max = 0;
+        for (int count : histogram) {
+            max = Math.max(max, count);
+        }
+        return max;
+    }
+
+    private String toString(int[] histogram) {
+        StringBuilder sb = new StringBuilder();
+        for (int minute = 0; minute < histogram.length; minute++) {
+            if (histogram[minute] > 0) {
+                sb.append(minute).append("min=").append(histogram[minute]).append(' ');
+            }
+        }
+        return sb.toString();
+    }
+}
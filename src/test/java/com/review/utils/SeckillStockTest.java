@@ -0,0 +1,192 @@
+package com.review.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.review.utils.RedisConstants.SECKILL_BUCKETS_KEY;
+import static com.review.utils.RedisConstants.SECKILL_SHARD_KEY;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 分段库存的并发正确性：不超卖、一人一单
+ * 需要本地 Redis（localhost:6379），使用 15 号库，不可用时跳过
+ */
+class SeckillStockTest {
+
+    private static final int SHARDS = 4;
+    private static final int BUCKETS = 8;
+    private static final int THREADS = 64;
+
+    private LettuceConnectionFactory connectionFactory;
+    private StringRedisTemplate stringRedisTemplate;
+    private SeckillShardRouter router;
+    private SeckillStock seckillStock;
+    private final List<Long> voucherIds = new ArrayList<>();
+    private final AtomicLong orderIds = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration("localhost", 6379);
+        configuration.setDatabase(15);
+        connectionFactory = new LettuceConnectionFactory(configuration);
+        connectionFactory.afterPropertiesSet();
+        stringRedisTemplate = new StringRedisTemplate(connectionFactory);
+        boolean available;
+        try {
+            available = "PONG".equals(stringRedisTemplate.execute(connection -> connection.ping(), true));
+        } catch (Exception e) {
+            available = false;
+        }
+        assumeTrue(available, "本地 Redis 不可用");
+        router = new SeckillShardRouter(stringRedisTemplate, SHARDS);
+        seckillStock = new SeckillStock(stringRedisTemplate, router, BUCKETS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (router != null) {
+            for (Long voucherId : voucherIds) {
+                List<String> keys = new ArrayList<>(seckillStock.split(voucherId, 0).keySet());
+                for (int i = 0; i < BUCKETS; i++) {
+                    keys.add(router.orderKey(voucherId, i));
+                }
+                stringRedisTemplate.delete(keys);
+                for (MapRecord<String, Object, Object> record : ordersOf(voucherId)) {
+                    stringRedisTemplate.opsForStream().delete(record);
+                }
+                stringRedisTemplate.opsForHash().delete(SECKILL_SHARD_KEY, voucherId.toString());
+                stringRedisTemplate.opsForHash().delete(SECKILL_BUCKETS_KEY, voucherId.toString());
+            }
+        }
+        connectionFactory.destroy();
+    }
+
+    /**
+     * 需求远大于库存：成功数恰好等于库存，每个用户最多成功一次
+     */
+    @Test
+    void testNoOversell() throws InterruptedException {
+        Long voucherId = newVoucher(100);
+        Map<Long, AtomicInteger> successes = runConcurrently(voucherId, 1000, 3, 1);
+
+        assertEquals(100, successes.values().stream().mapToInt(AtomicInteger::get).sum());
+        assertTrue(successes.values().stream().allMatch(count -> count.get() <= 1));
+        assertStockAndOrders(voucherId, 0, 100);
+    }
+
+    /**
+     * 所有用户落在同一段、且每个用户并发重复请求：所属段很快售罄，其余请求都经过其他段，仍然一人一单
+     */
+    @Test
+    void testNoDuplicateAcrossBuckets() throws InterruptedException {
+        Long voucherId = newVoucher(100);
+        Map<Long, AtomicInteger> successes = runConcurrently(voucherId, 60, 10, BUCKETS);
+
+        assertEquals(60, successes.values().stream().mapToInt(AtomicInteger::get).sum());
+        assertTrue(successes.values().stream().allMatch(count -> count.get() == 1));
+        assertStockAndOrders(voucherId, 40, 60);
+    }
+
+    private Long newVoucher(int stock) {
+        Long voucherId = System.nanoTime();
+        voucherIds.add(voucherId);
+        seckillStock.init(voucherId, stock);
+        assertEquals(BUCKETS, router.bucketsOf(voucherId));
+        return voucherId;
+    }
+
+    /**
+     * @param users 用户数
+     * @param requestsPerUser 每个用户的请求数，打乱后并发执行
+     * @param userIdStep 用户 id 的步长，为分段数时所有用户落在同一段
+     * @return 用户 id -> 成功次数
+     */
+    private Map<Long, AtomicInteger> runConcurrently(Long voucherId, int users, int requestsPerUser, int userIdStep)
+            throws InterruptedException {
+        List<Long> requests = new ArrayList<>(users * requestsPerUser);
+        for (int i = 0; i < users; i++) {
+            for (int j = 0; j < requestsPerUser; j++) {
+                requests.add((long) i * userIdStep);
+            }
+        }
+        Collections.shuffle(requests);
+        Map<Long, AtomicInteger> successes = new ConcurrentHashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(requests.size());
+        for (Long userId : requests) {
+            executor.submit(() -> {
+                try {
+                    start.await();
+                    if (seckillStock.purchase(voucherId, userId, orderIds.incrementAndGet()) == SeckillStock.OK) {
+                        successes.computeIfAbsent(userId, id -> new AtomicInteger()).incrementAndGet();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        start.countDown();
+        assertTrue(done.await(1, TimeUnit.MINUTES));
+        executor.shutdown();
+        return successes;
+    }
+
+    /**
+     * 剩余库存不为负且总数正确，stream 中的订单数与下单用户数一致
+     */
+    private void assertStockAndOrders(Long voucherId, int remaining, int orders) {
+        int total = 0;
+        for (String key : seckillStock.split(voucherId, 0).keySet()) {
+            int stock = Integer.parseInt(stringRedisTemplate.opsForValue().get(key));
+            assertTrue(stock >= 0);
+            total += stock;
+        }
+        assertEquals(remaining, total);
+        List<MapRecord<String, Object, Object>> records = ordersOf(voucherId);
+        assertEquals(orders, records.size());
+        Set<Object> buyers = ConcurrentHashMap.newKeySet();
+        records.forEach(record -> buyers.add(record.getValue().get("userId")));
+        assertEquals(orders, buyers.size());
+    }
+
+    private List<MapRecord<String, Object, Object>> ordersOf(Long voucherId) {
+        List<MapRecord<String, Object, Object>> orders = new ArrayList<>();
+        for (int shard = 0; shard < SHARDS; shard++) {
+            List<MapRecord<String, Object, Object>> records = stringRedisTemplate.opsForStream()
+                    .range(SeckillShardRouter.streamKey(shard), Range.unbounded());
+            if (records == null) {
+                continue;
+            }
+            for (MapRecord<String, Object, Object> record : records) {
+                if (voucherId.toString().equals(record.getValue().get("voucherId"))) {
+                    orders.add(record);
+                }
+            }
+        }
+        return orders;
+    }
+}